@@ -0,0 +1,66 @@
+package com.farahsoftware.rsx;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-player token bucket for RSX GUI clicks.
+ *
+ * Each player holds up to 'burst' tokens, refilled at 'refill-per-second'. A click costs one token;
+ * with none left the click is throttled. Buckets are only touched from the owning player's thread
+ * (main thread, or the player's region on Folia), so the bucket itself needs no locking.
+ */
+public class ClickRateLimiter {
+    private final RSXMetrics metrics;
+    private final Map<UUID, Bucket> buckets = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+    private volatile double burst;
+    private volatile double refillPerNano;
+
+    public ClickRateLimiter(RSXMetrics metrics, boolean enabled, int burst, double refillPerSecond) {
+        this.metrics = metrics;
+        configure(enabled, burst, refillPerSecond);
+    }
+
+    public void configure(boolean enabled, int burst, double refillPerSecond) {
+        this.enabled = enabled;
+        this.burst = Math.max(1, burst);
+        this.refillPerNano = Math.max(0.1, refillPerSecond) / 1_000_000_000d;
+    }
+
+    /**
+     * Take a token for this player's click. Returns false if the click should be dropped.
+     */
+    public boolean tryAcquire(UUID player) {
+        if (!enabled) return true;
+        long now = System.nanoTime();
+        Bucket b = buckets.get(player);
+        if (b == null) {
+            b = new Bucket(burst, now);
+            buckets.put(player, b);
+        }
+        double tokens = Math.min(burst, b.tokens + (now - b.lastRefill) * refillPerNano);
+        b.lastRefill = now;
+        if (tokens < 1d) {
+            b.tokens = tokens;
+            metrics.increment("clicks.throttled");
+            return false;
+        }
+        b.tokens = tokens - 1d;
+        return true;
+    }
+
+    public void forget(UUID player) {
+        buckets.remove(player);
+    }
+
+    private static final class Bucket {
+        double tokens;
+        long lastRefill;
+        Bucket(double tokens, long lastRefill) {
+            this.tokens = tokens;
+            this.lastRefill = lastRefill;
+        }
+    }
+}
@@ -12,6 +12,11 @@ public class ConfigManager {
     private final JavaPlugin plugin;
     private FileConfiguration cfg;
     private FileConfiguration guiCfg;
+    private int version;
+    private String guiTitle;
+    private final Object saveLock = new Object();
+    private long saveSeq;
+    private long savedSeq;
 
     public ConfigManager(JavaPlugin plugin) {
         this.plugin = plugin;
@@ -23,13 +28,19 @@ public class ConfigManager {
         this.cfg = plugin.getConfig();
         this.guiCfg = org.bukkit.configuration.file.YamlConfiguration.loadConfiguration(
                 new java.io.File(plugin.getDataFolder(), "gui.yml"));
+        this.guiTitle = ChatColor.translateAlternateColorCodes('&', guiCfg.getString("title", "&aExchange Spawners"));
+        version++;
     }
 
+    /** Incremented on every reload; tagged onto profiling events. */
+    public int getVersion() { return version; }
+
     public FileConfiguration getRawConfig() { return cfg; }
     public FileConfiguration getGuiConfig() { return guiCfg; }
 
     /* GUI helpers */
-    public String getGuiTitle() { return ChatColor.translateAlternateColorCodes('&', guiCfg.getString("title", "&aExchange Spawners")); }
+    /** Translated once per reload; checked on every inventory event. */
+    public String getGuiTitle() { return guiTitle; }
     public int getGuiRows() { return Math.max(1, Math.min(6, guiCfg.getInt("rows", 3))); }
     public int getCancelSlot() { return guiCfg.getInt("cancel-slot", 0); }
     public int getConfirmSlot() { return guiCfg.getInt("confirm-slot", 8); }
@@ -46,6 +57,64 @@ public class ConfigManager {
         if (list == null || list.isEmpty()) return Arrays.asList(10,11,12,13,14,15);
         return list;
     }
+    /* Performance helpers */
+    public int getTickBudgetMicros() { return Math.max(50, cfg.getInt("performance.tick-budget-micros", 1000)); }
+
+    public boolean isClickLimitEnabled() { return cfg.getBoolean("performance.click-limit.enabled", true); }
+    public int getClickLimitBurst() { return Math.max(1, cfg.getInt("performance.click-limit.burst", 10)); }
+    public double getClickLimitRefillPerSecond() { return Math.max(0.1, cfg.getDouble("performance.click-limit.refill-per-second", 8.0)); }
+
+    /* Journal helpers */
+    public boolean isJournalEnabled() { return cfg.getBoolean("journal.enabled", true); }
+    public int getJournalMaxFileMb() { return Math.max(1, cfg.getInt("journal.max-file-mb", 16)); }
+    public int getJournalFlushIntervalMs() { return Math.max(10, cfg.getInt("journal.flush-interval-ms", 200)); }
+
+    /* Storage helpers */
+    public String getStorageType() { return cfg.getString("storage.type", "none").toLowerCase(Locale.ROOT); }
+    public String getStorageFile() { return cfg.getString("storage.file", "rsx.db"); }
+    public int getStorageFlushIntervalMs() { return Math.max(50, cfg.getInt("storage.flush-interval-ms", 500)); }
+
+    /* Rate sync helpers */
+    public boolean isSyncEnabled() { return cfg.getBoolean("sync.enabled", false); }
+    public String getSyncTransport() { return cfg.getString("sync.transport", "redis").toLowerCase(Locale.ROOT); }
+    public String getSyncNodeId() { return cfg.getString("sync.node-id", ""); }
+    public String getSyncChannel() { return cfg.getString("sync.channel", "rsx:rates"); }
+    public String getSyncRedisHost() { return cfg.getString("sync.redis.host", "127.0.0.1"); }
+    public int getSyncRedisPort() { return cfg.getInt("sync.redis.port", 6379); }
+    public String getSyncRedisPassword() { return cfg.getString("sync.redis.password", ""); }
+    public String getSyncFile() { return cfg.getString("sync.file.path", "rate-sync.log"); }
+    public int getSyncFilePollMs() { return Math.max(50, cfg.getInt("sync.file.poll-ms", 500)); }
+
+    /* Exchange station helpers */
+    public boolean isStationsEnabled() { return cfg.getBoolean("stations.enabled", true); }
+    public Material getStationBlock() {
+        Material m = Material.matchMaterial(cfg.getString("stations.block", "BARREL"));
+        return m != null ? m : Material.BARREL;
+    }
+    public int getStationIntervalTicks() { return Math.max(1, cfg.getInt("stations.interval-ticks", 20)); }
+    public int getStationMaxItemsPerTick() { return Math.max(1, cfg.getInt("stations.max-items-per-tick", 256)); }
+
+    /* In-place conversion helpers */
+    public boolean isConvertEnabled() { return cfg.getBoolean("convert.enabled", true); }
+    public Material getConvertTool() {
+        Material m = Material.matchMaterial(cfg.getString("convert.tool", "BLAZE_ROD"));
+        return m != null ? m : Material.BLAZE_ROD;
+    }
+
+    /* Points wallet helpers */
+    public boolean isWalletEnabled() { return cfg.getBoolean("wallet.enabled", false); }
+    public int getWalletFlushIntervalSeconds() { return Math.max(1, cfg.getInt("wallet.flush-interval-seconds", 30)); }
+
+    public ConfigurationSection getTiersSection() { return cfg.getConfigurationSection("tiers"); }
+
+    public int getHistoryRecentPerPlayer() { return Math.max(1, cfg.getInt("history.recent-per-player", 50)); }
+
+    /* Session helpers */
+    public int getMaxConcurrentSessions() { return Math.max(0, cfg.getInt("sessions.max-concurrent", 0)); }
+    public int getSessionIdleTtlSeconds() { return Math.max(0, cfg.getInt("sessions.idle-ttl-seconds", 300)); }
+
+    public ConfigurationSection getMessagesSection() { return guiCfg.getConfigurationSection("messages"); }
+
     public String getItemName(String path) { return ChatColor.translateAlternateColorCodes('&', guiCfg.getString(path + ".name", "")); }
     public Material getItemMaterial(String path, Material fallback) {
         try {
@@ -108,5 +177,31 @@ public class ConfigManager {
         }
     }
 
+    /**
+     * Set several mob rates and write config.yml once, off-thread. The YAML is rendered here (main thread /
+     * global region) and only the file write is async; a newer snapshot is never overwritten by an older one.
+     */
+    public void setMobRates(Map<String, Integer> rates, RSXScheduler scheduler) {
+        if (rates.isEmpty()) return;
+        for (Map.Entry<String, Integer> e : rates.entrySet()) cfg.set("mobs." + e.getKey(), e.getValue());
+        String yaml = cfg.saveToString();
+        long seq = ++saveSeq;
+        java.io.File file = new java.io.File(plugin.getDataFolder(), "config.yml");
+        scheduler.runAsync(() -> {
+            synchronized (saveLock) {
+                if (seq <= savedSeq) return;
+                java.io.File tmp = new java.io.File(file.getPath() + ".tmp");
+                try {
+                    java.nio.file.Files.write(tmp.toPath(), yaml.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                    java.nio.file.Files.move(tmp.toPath(), file.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                            java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+                    savedSeq = seq;
+                } catch (java.io.IOException ex) {
+                    plugin.getLogger().warning("[RSX] Could not save config.yml: " + ex.getMessage());
+                }
+            }
+        });
+    }
+
     public void save() { plugin.saveConfig(); }
 }
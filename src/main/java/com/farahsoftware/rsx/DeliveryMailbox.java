@@ -0,0 +1,221 @@
+package com.farahsoftware.rsx;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-player delivery mailbox for payouts and returns that do not fit in the player's inventory,
+ * so RSX never drops items into the world.
+ *
+ * - Spawners are kept as compact (mob, amount) records and only turned into items when claimed.
+ * - Anything else (non-spawners left in the GUI) is kept as the ItemStack itself.
+ * - Claiming (/rsx claim, or on join) hands everything over in one batched addItem; what still does not
+ *   fit stays in the mailbox.
+ * - Changes are written to mailbox.yml off-thread, coalesced into one pending write.
+ */
+public class DeliveryMailbox {
+    private final RoseStackerXchange plugin;
+    private final RSXMetrics metrics;
+    private final File file;
+    private final Map<UUID, Box> boxes = new ConcurrentHashMap<>();
+    private final AtomicBoolean saveQueued = new AtomicBoolean();
+
+    private static final class Box {
+        final Map<String, Integer> spawners = new LinkedHashMap<>();
+        final List<ItemStack> items = new ArrayList<>();
+
+        int size() {
+            int n = 0;
+            for (int amount : spawners.values()) n += amount;
+            for (ItemStack it : items) n += it.getAmount();
+            return n;
+        }
+
+        boolean isEmpty() { return spawners.isEmpty() && items.isEmpty(); }
+    }
+
+    public DeliveryMailbox(RoseStackerXchange plugin, RSXMetrics metrics, File file) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.file = file;
+        metrics.gauge("mailbox.players", boxes::size);
+    }
+
+    public void load() {
+        if (!file.exists()) return;
+        YamlConfiguration yml = YamlConfiguration.loadConfiguration(file);
+        for (String key : yml.getKeys(false)) {
+            UUID id;
+            try {
+                id = UUID.fromString(key);
+            } catch (IllegalArgumentException ex) {
+                continue;
+            }
+            Box box = new Box();
+            ConfigurationSection spawners = yml.getConfigurationSection(key + ".spawners");
+            if (spawners != null) {
+                for (String mob : spawners.getKeys(false)) {
+                    int amount = spawners.getInt(mob);
+                    if (amount > 0) box.spawners.put(mob, amount);
+                }
+            }
+            for (Object o : yml.getList(key + ".items", new ArrayList<>())) {
+                if (o instanceof ItemStack) box.items.add((ItemStack) o);
+            }
+            if (!box.isEmpty()) boxes.put(id, box);
+        }
+    }
+
+    /** Final synchronous write on disable. */
+    public void shutdown() {
+        write();
+    }
+
+    /** Hold spawners for a player. */
+    public void deliver(UUID player, String mob, int amount) {
+        if (amount <= 0) return;
+        while (true) {
+            Box box = boxes.computeIfAbsent(player, k -> new Box());
+            synchronized (box) {
+                // A claim may have just emptied and dropped this box
+                if (boxes.get(player) != box) continue;
+                box.spawners.merge(mob, amount, Integer::sum);
+                break;
+            }
+        }
+        metrics.add("mailbox.delivered", amount);
+        queueSave();
+    }
+
+    /** Hold a non-spawner item for a player. */
+    public void deliverItem(UUID player, ItemStack item) {
+        if (item == null || item.getAmount() <= 0) return;
+        while (true) {
+            Box box = boxes.computeIfAbsent(player, k -> new Box());
+            synchronized (box) {
+                if (boxes.get(player) != box) continue;
+                box.items.add(item.clone());
+                break;
+            }
+        }
+        metrics.add("mailbox.delivered", item.getAmount());
+        queueSave();
+    }
+
+    /** Number of spawners/items waiting for the player. */
+    public int pending(UUID player) {
+        Box box = boxes.get(player);
+        if (box == null) return 0;
+        synchronized (box) {
+            return box.size();
+        }
+    }
+
+    /**
+     * Move as much as fits into the player's inventory with one addItem call. Must run on the player's thread.
+     * Returns the number of spawners/items handed over.
+     */
+    public int claim(Player p) {
+        Box box = boxes.get(p.getUniqueId());
+        if (box == null) return 0;
+        List<ItemStack> stacks = new ArrayList<>();
+        List<String> stackMob = new ArrayList<>();   // null for plain items
+        List<Integer> stackUnits = new ArrayList<>();
+        synchronized (box) {
+            if (box.isEmpty()) return 0;
+            for (Map.Entry<String, Integer> e : box.spawners.entrySet()) {
+                List<ItemStack> made = plugin.getSpawnerManager().createSpawnerItems(e.getKey(), e.getValue());
+                // A RoseStacker stacked item carries the whole amount in one item
+                boolean stacked = made.size() == 1 && made.get(0).getAmount() != e.getValue();
+                for (ItemStack it : made) {
+                    stacks.add(it);
+                    stackMob.add(e.getKey());
+                    stackUnits.add(stacked ? e.getValue() : it.getAmount());
+                }
+            }
+            for (ItemStack it : box.items) {
+                stacks.add(it.clone());
+                stackMob.add(null);
+                stackUnits.add(it.getAmount());
+            }
+            box.spawners.clear();
+            box.items.clear();
+
+            int[] amounts = new int[stacks.size()];
+            for (int i = 0; i < amounts.length; i++) amounts[i] = stacks.get(i).getAmount();
+            Map<Integer, ItemStack> leftover = p.getInventory().addItem(stacks.toArray(new ItemStack[0]));
+
+            int delivered = 0;
+            for (int i = 0; i < stacks.size(); i++) {
+                ItemStack left = leftover.get(i);
+                int units = stackUnits.get(i);
+                if (left == null) {
+                    delivered += units;
+                    continue;
+                }
+                // Partially placed plain stacks come back with the rest; whole items come back unchanged
+                int remaining = left.getAmount() == amounts[i] ? units : left.getAmount();
+                delivered += units - remaining;
+                String mob = stackMob.get(i);
+                if (mob != null) box.spawners.merge(mob, remaining, Integer::sum);
+                else box.items.add(left);
+            }
+            if (box.isEmpty()) boxes.remove(p.getUniqueId(), box);
+            metrics.add("mailbox.claimed", delivered);
+            if (delivered > 0) queueSave();
+            return delivered;
+        }
+    }
+
+    /** Claim and tell the player what arrived and what is still waiting. */
+    public void claimAndNotify(Player p, boolean reportEmpty) {
+        int claimed = claim(p);
+        int waiting = pending(p.getUniqueId());
+        Messages messages = plugin.getMessages();
+        if (claimed > 0) p.sendMessage(messages.get(Messages.Key.MAILBOX_CLAIMED, claimed));
+        if (waiting > 0) p.sendMessage(messages.get(Messages.Key.MAILBOX_WAITING, waiting));
+        else if (claimed == 0 && reportEmpty) p.sendMessage(messages.get(Messages.Key.MAILBOX_EMPTY));
+    }
+
+    private void queueSave() {
+        if (saveQueued.compareAndSet(false, true)) {
+            plugin.getScheduler().runAsync(() -> {
+                saveQueued.set(false);
+                write();
+            });
+        }
+    }
+
+    private synchronized void write() {
+        YamlConfiguration yml = new YamlConfiguration();
+        for (Map.Entry<UUID, Box> e : boxes.entrySet()) {
+            Box box = e.getValue();
+            synchronized (box) {
+                if (box.isEmpty()) continue;
+                String key = e.getKey().toString();
+                for (Map.Entry<String, Integer> s : box.spawners.entrySet()) yml.set(key + ".spawners." + s.getKey(), s.getValue());
+                if (!box.items.isEmpty()) {
+                    List<ItemStack> copy = new ArrayList<>();
+                    for (ItemStack it : box.items) copy.add(it.clone());
+                    yml.set(key + ".items", copy);
+                }
+            }
+        }
+        try {
+            yml.save(file);
+        } catch (java.io.IOException ex) {
+            plugin.getLogger().warning("[RSX] Could not save mailbox.yml: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.farahsoftware.rsx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom JFR events for the exchange lifecycle and its hot paths.
+ *
+ * Usage pattern (keeps the cost near zero when no recording is running):
+ *
+ *   ExchangeEvents.Refresh evt = new ExchangeEvents.Refresh();
+ *   evt.begin();
+ *   ... work ...
+ *   if (evt.shouldCommit()) { evt.mobKey = ...; evt.commit(); }
+ *
+ * When the event is disabled begin/shouldCommit are intrinsics that fold away and the
+ * allocation is removed by escape analysis, so fields are only populated when recorded.
+ */
+public final class ExchangeEvents {
+
+    private ExchangeEvents() {}
+
+    @Name("rsx.SessionStart")
+    @Label("RSX Session Start")
+    @Category({"RoseStackerXchange", "Exchange"})
+    @Description("A player opened the exchange GUI for a target mob")
+    @StackTrace(false)
+    public static class SessionStart extends Event {
+        @Label("Player") public String player;
+        @Label("Mob Key") public String mobKey;
+        @Label("Required Points") public int required;
+        @Label("Config Version") public int configVersion;
+    }
+
+    @Name("rsx.GuiBuild")
+    @Label("RSX GUI Build")
+    @Category({"RoseStackerXchange", "GUI"})
+    @Description("Construction of a selection or exchange inventory")
+    @StackTrace(false)
+    public static class GuiBuild extends Event {
+        @Label("GUI") public String gui;
+        @Label("Mob Key") public String mobKey;
+        @Label("Slot Count") public int slotCount;
+        @Label("Page") public int page;
+        @Label("Config Version") public int configVersion;
+    }
+
+    @Name("rsx.Refresh")
+    @Label("RSX Refresh")
+    @Category({"RoseStackerXchange", "Exchange"})
+    @Description("Recompute of provided points and repaint of confirm button / marker")
+    @StackTrace(false)
+    public static class Refresh extends Event {
+        @Label("Player") public String player;
+        @Label("Mob Key") public String mobKey;
+        @Label("Slot Count") public int slotCount;
+        @Label("Points") public int points;
+        @Label("Required Points") public int required;
+        @Label("Config Version") public int configVersion;
+    }
+
+    @Name("rsx.StackCount")
+    @Label("RSX Stack Count Resolution")
+    @Category({"RoseStackerXchange", "Exchange"})
+    @Description("Resolution of the effective stack size of a single spawner item")
+    @StackTrace(false)
+    public static class StackCount extends Event {
+        @Label("Source") @Description("rosestacker-api, display-name-regex, lore-regex or amount")
+        public String source;
+        @Label("Count") public int count;
+    }
+
+    @Name("rsx.Complete")
+    @Label("RSX Exchange Complete")
+    @Category({"RoseStackerXchange", "Exchange"})
+    @Description("Validation, consumption and payout of a confirmed exchange")
+    @StackTrace(false)
+    public static class Complete extends Event {
+        @Label("Player") public String player;
+        @Label("Mob Key") public String mobKey;
+        @Label("Transaction Id") public long txId;
+        @Label("Slot Count") public int slotCount;
+        @Label("Points") public int points;
+        @Label("Required Points") public int required;
+        @Label("Success") public boolean success;
+        @Label("Config Version") public int configVersion;
+    }
+
+    /** All event types, used by the profiler to enable them on a recording. */
+    @SuppressWarnings("unchecked")
+    static final Class<? extends Event>[] ALL = new Class[] {
+            SessionStart.class, GuiBuild.class, Refresh.class, StackCount.class, Complete.class
+    };
+}
@@ -0,0 +1,333 @@
+package com.farahsoftware.rsx;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of completed exchanges.
+ *
+ * append() only enqueues onto a lock-free queue; a background writer thread wakes every
+ * flush interval, encodes everything queued into one buffer and group-commits it with a single
+ * FileChannel write + force. Files rotate once they reach journal.max-file-mb.
+ *
+ * File layout: header (MAGIC, FORMAT_VERSION), then records of
+ *   int length | long timestamp | long txId | long uuidMsb | long uuidLsb | str target | int points |
+ *   short consumedCount | (str mob, int count)* | int crc32(of everything after length)
+ * where str is a short byte length followed by UTF-8 bytes. See JournalReader for the offline reader.
+ *
+ * A PositionListener learns where each record landed (segment number, frame offset) once it is on disk,
+ * so readers can seek to single records instead of scanning whole segments.
+ */
+public class ExchangeJournal {
+    static final int MAGIC = 0x5253584A; // "RSXJ"
+    static final int FORMAT_VERSION = 1;
+    static final String FILE_PREFIX = "journal-";
+    static final String FILE_SUFFIX = ".rsxj";
+    /** Largest record length (after the length field) writers produce and readers accept. */
+    static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final RoseStackerXchange plugin;
+    private final RSXMetrics metrics;
+    private final File dir;
+    private final long maxFileBytes;
+    private final long flushIntervalNanos;
+    private final Queue<ExchangeRecord> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final CRC32 crc = new CRC32();
+    // Frame offsets within the batch buffer, parallel to batchRecords; only filled with a listener set
+    private final List<ExchangeRecord> batchRecords = new ArrayList<>();
+    private int[] batchOffsets = new int[64];
+    private volatile PositionListener positionListener;
+
+    private volatile boolean running;
+    private Thread writer;
+    private FileChannel channel;
+    private int fileSeq;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    public ExchangeJournal(RoseStackerXchange plugin, RSXMetrics metrics, File dir, int maxFileMb, int flushIntervalMs) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.dir = dir;
+        this.maxFileBytes = Math.max(1, maxFileMb) * 1024L * 1024L;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10, flushIntervalMs));
+        metrics.gauge("journal.pending", pending::get);
+    }
+
+    /** Where a journaled record's frame starts: segment number and byte offset within that segment. */
+    public interface PositionListener {
+        void written(ExchangeRecord record, int segment, long offset);
+    }
+
+    /** Called on the writer thread after each batch is forced to disk. Set before the first append. */
+    public void setPositionListener(PositionListener listener) {
+        this.positionListener = listener;
+    }
+
+    public void start() throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Could not create " + dir);
+        quarantineForeignSegments();
+        int seq = latestFileSeq(dir);
+        if (seq == 0) {
+            seq = 1;
+        } else if (!repairTail(segmentFile(dir, seq))) {
+            // Could not be moved aside; leave it alone and continue in a fresh segment
+            seq++;
+        }
+        openSegment(seq);
+        running = true;
+        writer = new Thread(this::runWriter, "RSX-Journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a record; never blocks and never touches the disk on the caller's thread.
+     */
+    public void append(ExchangeRecord record) {
+        if (!running) return;
+        queue.offer(record);
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Stop the writer after it has flushed everything queued so far.
+     */
+    public void shutdown() {
+        running = false;
+        if (writer == null) return;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeChannel();
+    }
+
+    private void runWriter() {
+        while (running || !queue.isEmpty()) {
+            if (queue.isEmpty()) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+                continue;
+            }
+            try {
+                flushBatch();
+            } catch (Throwable t) {
+                metrics.increment("journal.errors");
+                plugin.getLogger().warning("[RSX] Journal write failed: " + t);
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    private void flushBatch() throws IOException {
+        buffer.clear();
+        batchRecords.clear();
+        PositionListener listener = positionListener;
+        int records = 0;
+        ExchangeRecord r;
+        while ((r = queue.poll()) != null) {
+            pending.decrementAndGet();
+            int frame = buffer.position();
+            if (!encode(r)) continue;
+            if (listener != null) {
+                if (records == batchOffsets.length) batchOffsets = Arrays.copyOf(batchOffsets, records * 2);
+                batchOffsets[records] = frame;
+                batchRecords.add(r);
+            }
+            records++;
+        }
+        if (records == 0) return;
+        buffer.flip();
+        if (channel.size() + buffer.remaining() > maxFileBytes && channel.size() > headerSize()) {
+            closeChannel();
+            openSegment(fileSeq + 1);
+            metrics.increment("journal.rotations");
+        }
+        long base = channel.size();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        channel.force(false);
+        if (listener != null) {
+            for (int i = 0; i < batchRecords.size(); i++) listener.written(batchRecords.get(i), fileSeq, base + batchOffsets[i]);
+            batchRecords.clear();
+        }
+        metrics.add("journal.records", records);
+        metrics.add("journal.bytes", bytes);
+        metrics.increment("journal.batches");
+    }
+
+    /**
+     * Rename segments whose header is not a journal of this version to *.bad, so the journal directory only
+     * holds segments JournalReader (export, history seeding) can read.
+     */
+    private void quarantineForeignSegments() {
+        for (File f : JournalReader.segments(dir)) {
+            try {
+                if (f.length() < headerSize() || intactLength(f) >= 0) continue;
+            } catch (IOException ex) {
+                continue;
+            }
+            File bad = new File(f.getPath() + ".bad");
+            if (bad.exists()) bad = new File(f.getPath() + "." + System.currentTimeMillis() + ".bad");
+            if (f.renameTo(bad)) {
+                metrics.increment("journal.quarantined");
+                plugin.getLogger().warning("[RSX] " + f.getName() + " is not a journal of this version, moved to " + bad.getName());
+            } else {
+                plugin.getLogger().warning("[RSX] " + f.getName() + " is not a journal of this version and could not be moved aside");
+            }
+        }
+    }
+
+    /**
+     * Cut a torn tail (a crash mid-write) off the segment so new records follow the last intact one.
+     * Returns false if the file does not start with a journal header of this version.
+     */
+    private boolean repairTail(File f) throws IOException {
+        long intact = intactLength(f);
+        if (intact < 0) return false;
+        long size = f.length();
+        if (intact < size) {
+            try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.WRITE)) {
+                ch.truncate(intact);
+            }
+            metrics.add("journal.truncated-bytes", size - intact);
+            plugin.getLogger().warning("[RSX] Journal " + f.getName() + " had a torn tail, truncated " + (size - intact) + " bytes");
+        }
+        return true;
+    }
+
+    /**
+     * Length of the segment up to the end of its last record with a valid frame and CRC (0 if shorter
+     * than a header, -1 if the header is not ours).
+     */
+    static long intactLength(File f) throws IOException {
+        long size = f.length();
+        if (size < headerSize()) return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return -1;
+            CRC32 check = new CRC32();
+            long pos = headerSize();
+            long good = pos;
+            while (pos + 4 <= size) {
+                int len = in.readInt();
+                if (len < 4 || len > MAX_RECORD_BYTES || pos + 4 + len > size) break;
+                byte[] body = new byte[len];
+                in.readFully(body);
+                pos += 4 + len;
+                check.reset();
+                check.update(body, 0, len - 4);
+                if ((int) check.getValue() == ByteBuffer.wrap(body).getInt(len - 4)) good = pos;
+            }
+            return good;
+        }
+    }
+
+    /** Encode into the batch buffer; false if the record is too large to journal. */
+    private boolean encode(ExchangeRecord r) {
+        byte[] target = r.target.getBytes(StandardCharsets.UTF_8);
+        int len = 8 + 8 + 8 + 8 + 2 + target.length + 4 + 2;
+        byte[][] mobs = new byte[r.consumed.size()][];
+        int i = 0;
+        for (String mob : r.consumed.keySet()) {
+            mobs[i] = mob.getBytes(StandardCharsets.UTF_8);
+            len += 2 + mobs[i].length + 4;
+            i++;
+        }
+        len += 4; // crc
+        if (len > MAX_RECORD_BYTES) {
+            metrics.increment("journal.oversized");
+            return false;
+        }
+        ensureCapacity(4 + len);
+
+        buffer.putInt(len);
+        int bodyStart = buffer.position();
+        buffer.putLong(r.timestamp);
+        buffer.putLong(r.txId);
+        buffer.putLong(r.player.getMostSignificantBits());
+        buffer.putLong(r.player.getLeastSignificantBits());
+        buffer.putShort((short) target.length).put(target);
+        buffer.putInt(r.points);
+        buffer.putShort((short) mobs.length);
+        i = 0;
+        for (Map.Entry<String, Integer> e : r.consumed.entrySet()) {
+            buffer.putShort((short) mobs[i].length).put(mobs[i]);
+            buffer.putInt(e.getValue());
+            i++;
+        }
+        crc.reset();
+        crc.update(buffer.array(), bodyStart, buffer.position() - bodyStart);
+        buffer.putInt((int) crc.getValue());
+        return true;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (buffer.remaining() >= extra) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+    }
+
+    private void openSegment(int seq) throws IOException {
+        fileSeq = seq;
+        File f = segmentFile(dir, seq);
+        channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(headerSize());
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+            while (header.hasRemaining()) channel.write(header);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+        channel = null;
+    }
+
+    static int headerSize() { return 8; }
+
+    static File segmentFile(File dir, int seq) {
+        return new File(dir, FILE_PREFIX + String.format("%05d", seq) + FILE_SUFFIX);
+    }
+
+    static int latestFileSeq(File dir) {
+        int max = 0;
+        File[] files = dir.listFiles((d, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null) return 0;
+        for (File f : files) max = Math.max(max, segmentSeq(f));
+        return max;
+    }
+
+    /** Segment number from a journal file name, or 0 if the name does not carry one. */
+    static int segmentSeq(File f) {
+        String n = f.getName();
+        try {
+            return Integer.parseInt(n.substring(FILE_PREFIX.length(), n.length() - FILE_SUFFIX.length()));
+        } catch (RuntimeException ex) {
+            return 0;
+        }
+    }
+}
@@ -5,79 +5,293 @@ import org.bukkit.inventory.*;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.ChatColor;
-import org.bukkit.Material;
-import org.bukkit.World;
-import org.bukkit.Bukkit;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class ExchangeManager {
     private final RoseStackerXchange plugin;
     private final SpawnerManager spawnerManager;
     private final ConfigManager config;
     private final NamespacedKey guiLockKey;
-    private final NamespacedKey markerKey;
-    private final Map<UUID, Session> sessions = new HashMap<>();
+    // Boot time (ms) in the high bits: a restart starts above every id the previous run could have reached
+    // unless it issued over 2^20 ids per millisecond of uptime, so ids stay unique in the journal and storage
+    private static final int TX_SEQ_BITS = 20;
+    private static final AtomicLong TX_SEQ = new AtomicLong(System.currentTimeMillis() << TX_SEQ_BITS);
+    private final SessionStore sessions;
+    private final RSXScheduler.Task sweepTask;
+    private final List<Consumer<ExchangeRecord>> completionListeners = new CopyOnWriteArrayList<>();
+    private final SpawnerIdentifier identifier;
+    /** Cart lines (target -> quantity) being put together with /rsx cart or right-clicks in the selection GUI. */
+    private final Map<UUID, Map<String, Integer>> carts = new ConcurrentHashMap<>();
+    private volatile long planLastMicros;
+    private volatile long planMaxMicros;
+
+    /** Different targets one cart may hold. */
+    static final int CART_MAX_LINES = 9;
 
     public ExchangeManager(RoseStackerXchange plugin, SpawnerManager spawnerManager, ConfigManager config) {
         this.plugin = plugin;
         this.spawnerManager = spawnerManager;
         this.config = config;
         this.guiLockKey = new NamespacedKey(plugin, "rsx_gui_locked");
-        this.markerKey = new NamespacedKey(plugin, "rsx_marker");
+        this.identifier = new SpawnerIdentifier(plugin, plugin.getMetrics(), plugin.getRsApi());
+        this.sessions = new SessionStore(plugin.getMetrics(), config.getMaxConcurrentSessions(), config.getSessionIdleTtlSeconds());
+        this.sweepTask = plugin.getScheduler().runGlobalTimer(this::sweepExpired, 100L, 100L);
+        plugin.getMetrics().gauge("planner.last-latency-micros", () -> planLastMicros);
+        plugin.getMetrics().gauge("planner.max-latency-micros", () -> planMaxMicros);
+        plugin.getMetrics().gauge("carts.open", carts::size);
+    }
+
+    public SessionStore getSessionStore() { return sessions; }
+
+    /**
+     * Register a callback for committed exchanges (journal, storage, ...). Called on the thread that
+     * completed the exchange, so listeners must only enqueue.
+     */
+    public void addCompletionListener(Consumer<ExchangeRecord> listener) {
+        completionListeners.add(listener);
     }
 
     public void startSession(Player p, String mobKey) {
-        int required = config.getMobMap().getOrDefault(mobKey, 1);
-        sessions.put(p.getUniqueId(), new Session(mobKey, required));
-        p.openInventory(plugin.getGuiManager().buildExchangeInventory(p, mobKey, required));
-        // Refresh UI immediately to show Provided/Required on marker and correct confirm state
-        Bukkit.getScheduler().runTask(plugin, () -> refreshConfirmState(p));
+        // Tier is resolved once per session; the cost is a lookup in the tier's precomputed table
+        int tier = plugin.getRateTiers().tierOf(p);
+        int required = plugin.getRateTiers().tables().cost(tier, mobKey, 1);
+        openSession(p, new Session(mobKey, required));
+    }
+
+    /*
+     * Carts: several (target, quantity) lines settled by one exchange session.
+     */
+
+    /** Add quantity of target to the player's cart. Returns false for unknown mobs or a full cart. */
+    public boolean cartAdd(Player p, String target, int quantity) {
+        if (quantity <= 0 || !plugin.getRateTable().rates().containsKey(target)) return false;
+        Map<String, Integer> cart = carts.computeIfAbsent(p.getUniqueId(), k -> Collections.synchronizedMap(new LinkedHashMap<>()));
+        synchronized (cart) {
+            if (!cart.containsKey(target) && cart.size() >= CART_MAX_LINES) return false;
+            cart.merge(target, quantity, (a, b) -> (int) Math.min(Integer.MAX_VALUE, (long) a + b));
+        }
+        return true;
+    }
+
+    public boolean cartRemove(Player p, String target) {
+        Map<String, Integer> cart = carts.get(p.getUniqueId());
+        return cart != null && cart.remove(target) != null;
+    }
+
+    public void clearCart(UUID player) {
+        carts.remove(player);
+    }
+
+    /** Copy of the player's cart lines in insertion order (empty if none). */
+    public Map<String, Integer> getCart(UUID player) {
+        Map<String, Integer> cart = carts.get(player);
+        if (cart == null) return Collections.emptyMap();
+        synchronized (cart) {
+            return new LinkedHashMap<>(cart);
+        }
+    }
+
+    /**
+     * Open one exchange session covering every line of the player's cart, priced at their tier.
+     * The cart is kept until the exchange completes, so a cancelled checkout can be retried.
+     */
+    public void checkoutCart(Player p) {
+        Map<String, Integer> cart = getCart(p.getUniqueId());
+        if (cart.isEmpty()) {
+            p.sendMessage(plugin.getMessages().get(Messages.Key.CART_EMPTY));
+            return;
+        }
+        int tier = plugin.getRateTiers().tierOf(p);
+        RateTiers.Tables tables = plugin.getRateTiers().tables();
+        List<CartLine> lines = new ArrayList<>();
+        long required = 0;
+        for (Map.Entry<String, Integer> e : cart.entrySet()) {
+            int cost = tables.cost(tier, e.getKey(), 1);
+            lines.add(new CartLine(e.getKey(), e.getValue(), cost));
+            required += (long) cost * e.getValue();
+        }
+        if (required > Integer.MAX_VALUE) {
+            p.sendMessage(plugin.getMessages().get(Messages.Key.CART_TOO_LARGE));
+            return;
+        }
+        openSession(p, new Session(lines));
+    }
+
+    private void openSession(Player p, Session session) {
+        ExchangeEvents.SessionStart evt = new ExchangeEvents.SessionStart();
+        evt.begin();
+        String mobKey = session.mobKey;
+        int required = session.required;
+        // A session left behind (e.g. its GUI was replaced without a close event) is closed properly first
+        if (sessions.get(p.getUniqueId()) != null) evictSession(p, "replaced");
+        if (!sessions.open(p.getUniqueId(), session)) {
+            p.sendMessage(plugin.getMessages().get(Messages.Key.EXCHANGE_BUSY));
+            return;
+        }
+        session.inventory = plugin.getGuiManager().buildExchangeInventory(p, session.guiName(), required, session.cartLines());
+        session.markerSlot = session.inventory.getSize() > GuiManager.MARKER_SLOT ? GuiManager.MARKER_SLOT : -1;
+        p.openInventory(session.inventory);
+        if (evt.shouldCommit()) {
+            evt.player = p.getUniqueId().toString();
+            evt.mobKey = mobKey;
+            evt.required = required;
+            evt.configVersion = config.getVersion();
+            evt.commit();
+        }
+        // Refresh UI right away to show Provided/Required on marker and correct confirm state
+        requestRefresh(p);
     }
 
     public void cancelSession(Player p) {
-        // Return any non-locked items from the top inventory back to the player's inventory
-        InventoryView view = p.getOpenInventory();
-        if (view != null) {
-            Inventory top = view.getTopInventory();
-            if (top != null) {
-                for (int i = 0; i < top.getSize(); i++) {
-                    ItemStack it = top.getItem(i);
-                    if (it == null) continue;
-                    ItemMeta meta = it.getItemMeta();
-                    if (meta != null && meta.getPersistentDataContainer().has(guiLockKey, PersistentDataType.STRING)) continue; // skip locked GUI items
-                    // remove from GUI
-                    top.setItem(i, null);
-                    // try to add back to player; drop overflow
-                    Map<Integer, ItemStack> leftover = p.getInventory().addItem(it);
-                    if (!leftover.isEmpty()) {
-                        World w = p.getWorld();
-                        for (ItemStack item : leftover.values()) w.dropItemNaturally(p.getLocation(), item);
-                    }
-                }
+        Session s = sessions.remove(p.getUniqueId());
+        // Return from the session's own inventory; without a session (already completed) this is
+        // only called from the close event of our GUI, so the open top inventory is ours.
+        Inventory top = s != null ? s.inventory : null;
+        if (top == null) {
+            InventoryView view = p.getOpenInventory();
+            if (view != null) top = view.getTopInventory();
+        }
+        if (top != null) returnItems(p, top);
+        if (!plugin.getScheduler().isFolia()) plugin.getBudgetExecutor().cancel(refreshKey(p));
+    }
+
+    /**
+     * Evict a player's session (quit/kick/ttl), returning inserted items and closing the GUI if it is still open.
+     */
+    public void evictSession(Player p, String reason) {
+        Session s = sessions.evict(p.getUniqueId(), reason);
+        if (s == null) return;
+        if (s.inventory != null) returnItems(p, s.inventory);
+        if (!plugin.getScheduler().isFolia()) plugin.getBudgetExecutor().cancel(refreshKey(p));
+        if (p.isOnline() && p.getOpenInventory().getTopInventory() == s.inventory) p.closeInventory();
+    }
+
+    // Return any non-locked items from the GUI back to the player's inventory; overflow goes to the mailbox
+    private void returnItems(Player p, Inventory top) {
+        List<ItemStack> back = new ArrayList<>();
+        for (int i = 0; i < top.getSize(); i++) {
+            ItemStack it = top.getItem(i);
+            if (it == null) continue;
+            ItemMeta meta = it.getItemMeta();
+            if (meta != null && meta.getPersistentDataContainer().has(guiLockKey, PersistentDataType.STRING)) continue; // skip locked GUI items
+            top.setItem(i, null);
+            back.add(it);
+        }
+        giveOrMail(p, back);
+    }
+
+    /**
+     * Add items to the player's inventory in one call. Whatever does not fit goes to the delivery mailbox
+     * (spawners as compact mob/amount records) instead of being dropped into the world.
+     */
+    private void giveOrMail(Player p, List<ItemStack> items) {
+        if (items.isEmpty()) return;
+        Map<Integer, ItemStack> leftover = p.getInventory().addItem(items.toArray(new ItemStack[0]));
+        if (leftover.isEmpty()) return;
+        DeliveryMailbox mailbox = plugin.getMailbox();
+        Set<String> mobs = plugin.getRateTable().rates().keySet();
+        int mailed = 0;
+        for (ItemStack it : leftover.values()) {
+            String mob = matchItemToMob(it, mobs);
+            if (mob != null) {
+                int count = getEffectiveStackCount(it);
+                mailbox.deliver(p.getUniqueId(), mob, count);
+                mailed += count;
+            } else {
+                mailbox.deliverItem(p.getUniqueId(), it);
+                mailed += it.getAmount();
+            }
+        }
+        p.sendMessage(plugin.getMessages().get(Messages.Key.MAILBOX_STORED, mailed));
+    }
+
+    private void sweepExpired() {
+        long now = System.currentTimeMillis();
+        for (UUID id : sessions.findExpired(now)) {
+            Player p = plugin.getServer().getPlayer(id);
+            if (p == null) {
+                // Player is gone and the quit handler never saw it; nothing left to return items to
+                sessions.evict(id, "orphaned");
+                continue;
             }
+            plugin.getScheduler().runForPlayer(p, () -> {
+                Session s = sessions.get(id);
+                if (s == null || !sessions.isExpired(s, System.currentTimeMillis())) return;
+                evictSession(p, "ttl");
+                p.sendMessage(plugin.getMessages().get(Messages.Key.EXCHANGE_TIMEOUT));
+            });
+        }
+    }
+
+    /**
+     * Plugin disable: return items for every open session. Not possible across region threads on Folia,
+     * where the quit handler covers shutdown instead.
+     */
+    public void shutdown() {
+        sweepTask.cancel();
+        if (plugin.getScheduler().isFolia()) return;
+        for (UUID id : sessions.ids()) {
+            Player p = plugin.getServer().getPlayer(id);
+            if (p != null) evictSession(p, "shutdown");
+            else sessions.evict(id, "shutdown");
         }
-        sessions.remove(p.getUniqueId());
     }
 
     public Session getSession(Player p) {
         return sessions.get(p.getUniqueId());
     }
 
+    // The session's inventory if it is the one the player has open, otherwise null
+    private Inventory openSessionInventory(Player p, Session s) {
+        Inventory top = p.getOpenInventory().getTopInventory();
+        return top != null && top == s.inventory ? top : null;
+    }
+
+    /**
+     * Queue a refresh on the tick-budget executor. Repeated requests for the same player
+     * within a tick coalesce into one rescan. On Folia the refresh runs on the player's
+     * entity scheduler instead, coalesced through the session's pending flag.
+     */
+    public void requestRefresh(Player p) {
+        if (plugin.getScheduler().isFolia()) {
+            Session s = getSession(p);
+            if (s == null || !s.refreshQueued.compareAndSet(false, true)) return;
+            plugin.getScheduler().runForPlayer(p, () -> {
+                s.refreshQueued.set(false);
+                refreshConfirmState(p);
+            });
+            return;
+        }
+        plugin.getBudgetExecutor().submit(refreshKey(p), () -> {
+            if (p.isOnline()) refreshConfirmState(p);
+        });
+    }
+
+    private static String refreshKey(Player p) {
+        return "refresh:" + p.getUniqueId();
+    }
+
     /**
      * Recompute provided points, toggle confirm button (gray/green), and update the marker lore with Provided/Required.
      */
     public void refreshConfirmState(Player p) {
         Session s = getSession(p);
-        if (s == null) return;
-        Inventory top = p.getOpenInventory().getTopInventory();
+        if (s == null || s.state.get() != TxState.OPEN) return;
+        Inventory top = openSessionInventory(p, s);
         if (top == null) return;
+        s.lastActivity = System.currentTimeMillis();
+        ExchangeEvents.Refresh evt = new ExchangeEvents.Refresh();
+        evt.begin();
 
         int totalPoints = 0;
-        Map<String,Integer> mobMap = config.getMobMap();
+        Map<String,Integer> mobMap = plugin.getRateTable().rates();
         for (int i = 0; i < top.getSize(); i++) {
             ItemStack it = top.getItem(i);
             if (it == null) continue;
@@ -91,247 +305,474 @@ public class ExchangeManager {
             }
         }
 
-        // Toggle confirm button
-        int confirmSlot = config.getConfirmSlot();
-        ItemStack button;
-        if (totalPoints == s.required) {
-            button = new ItemStack(config.getItemMaterial("items.confirm-enabled", Material.GREEN_WOOL));
-            ItemMeta bm = button.getItemMeta(); bm.setDisplayName(config.getItemName("items.confirm-enabled")); button.setItemMeta(bm);
-            bm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
-            button.setItemMeta(bm);
-        } else {
-            button = new ItemStack(config.getItemMaterial("items.confirm-disabled", Material.GRAY_WOOL));
-            ItemMeta bm = button.getItemMeta(); bm.setDisplayName(config.getItemName("items.confirm-disabled")); button.setItemMeta(bm);
-            bm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
-            button.setItemMeta(bm);
-        }
-        top.setItem(confirmSlot, button);
-
-        // Update marker lore with Provided/Required for quick feedback
-        int markerIndex = -1;
-        ItemStack marker = top.getItem(4);
-        if (marker != null && marker.hasItemMeta()) {
-            ItemMeta mm = marker.getItemMeta();
-            if (mm.getPersistentDataContainer().has(markerKey, PersistentDataType.STRING)) markerIndex = 4;
-        }
-        if (markerIndex == -1) {
-            for (int i = 0; i < top.getSize(); i++) {
-                ItemStack it = top.getItem(i);
-                if (it == null || !it.hasItemMeta()) continue;
-                ItemMeta mt = it.getItemMeta();
-                if (mt.getPersistentDataContainer().has(markerKey, PersistentDataType.STRING)) {
-                    markerIndex = i;
-                    marker = it;
-                    break;
-                }
-            }
+        // Repaint only what changed since the last render; unchanged refreshes write no slots
+        // Carts rarely add up exactly, the planner keeps what they overpay as small as possible
+        boolean enabled = s.isCart() ? totalPoints >= s.required : totalPoints == s.required;
+        if (enabled != s.renderedEnabled) {
+            top.setItem(config.getConfirmSlot(), plugin.getGuiManager().confirmButton(enabled));
+            s.renderedEnabled = enabled;
         }
-        if (markerIndex != -1 && marker != null) {
-            ItemMeta mm = marker.getItemMeta();
-            List<String> lore = new ArrayList<>();
-            lore.add(ChatColor.GRAY + "Required: " + s.required);
-            lore.add(ChatColor.GRAY + "Provided: " + totalPoints);
-            mm.setLore(lore);
-            mm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
-            // preserve marker key
-            marker.setItemMeta(mm);
-            top.setItem(markerIndex, marker);
+        if (totalPoints != s.renderedPoints && s.markerSlot >= 0) {
+            top.setItem(s.markerSlot, plugin.getGuiManager().buildMarker(s.guiName(), s.required, totalPoints, s.cartLines()));
+            s.renderedPoints = totalPoints;
+        }
+
+        if (evt.shouldCommit()) {
+            evt.player = p.getUniqueId().toString();
+            evt.mobKey = s.mobKey;
+            evt.slotCount = top.getSize();
+            evt.points = totalPoints;
+            evt.required = s.required;
+            evt.configVersion = config.getVersion();
+            evt.commit();
         }
     }
 
     /**
      * Called when confirm clicked: validate content of inventory, remove items, and give target spawner via RoseStacker.
+     *
+     * Transaction flow per session: OPEN -> VALIDATING -> COMMITTED (or back to OPEN when validation fails).
+     * The OPEN -> VALIDATING transition is a single CAS, so a double-click or a confirm racing a queued
+     * refresh is dropped in O(1) without rescanning the GUI. On commit every input item is taken out of
+     * the GUI before any payout is dispatched.
      */
     public boolean tryComplete(Player p) {
         Session s = getSession(p);
         if (s == null) return false;
-        Inventory top = p.getOpenInventory().getTopInventory();
-        if (top == null) return false;
+        if (!s.state.compareAndSet(TxState.OPEN, TxState.VALIDATING)) {
+            plugin.getMetrics().increment("exchange.duplicate-confirms");
+            return false;
+        }
+        Inventory top = openSessionInventory(p, s);
+        if (top == null) {
+            s.state.set(TxState.OPEN);
+            return false;
+        }
+        ExchangeEvents.Complete evt = new ExchangeEvents.Complete();
+        evt.begin();
+        boolean ok = completeExchange(p, s, top, evt);
+        if (evt.shouldCommit()) {
+            evt.player = p.getUniqueId().toString();
+            evt.mobKey = s.mobKey;
+            evt.txId = s.txId;
+            evt.slotCount = top.getSize();
+            evt.required = s.required;
+            evt.success = ok;
+            evt.configVersion = config.getVersion();
+            evt.commit();
+        }
+        return ok;
+    }
 
+    private boolean completeExchange(Player p, Session s, Inventory top, ExchangeEvents.Complete evt) {
+        // Validate: one scan, remembering what each input slot is worth
+        int size = top.getSize();
+        int[] inputSlots = new int[size];
+        String[] slotMob = new String[size];
+        int[] slotRate = new int[size];
+        int[] slotCount = new int[size];
+        int inputs = 0;
         int totalPoints = 0;
-        Map<Integer, ItemStack> matched = new LinkedHashMap<>();
-        Map<String,Integer> mobMap = config.getMobMap();
+        Map<String,Integer> mobMap = plugin.getRateTable().rates();
 
-        for (int i = 0; i < top.getSize(); i++) {
+        for (int i = 0; i < size; i++) {
             ItemStack it = top.getItem(i);
             if (it == null) continue;
             ItemMeta meta = it.getItemMeta();
             if (meta != null && meta.getPersistentDataContainer().has(guiLockKey, PersistentDataType.STRING)) continue;
             String match = matchItemToMob(it, mobMap.keySet());
+            inputSlots[inputs] = i;
             if (match != null) {
                 int rate = mobMap.getOrDefault(match, 1);
                 int effectiveCount = getEffectiveStackCount(it);
                 totalPoints += rate * effectiveCount;
-                matched.put(i, it);
+                slotMob[inputs] = match;
+                slotRate[inputs] = rate;
+                slotCount[inputs] = effectiveCount;
             }
+            inputs++;
         }
 
+        evt.points = totalPoints;
         if (totalPoints < s.required) {
-            p.sendMessage(ChatColor.RED + "Not enough points. Required: " + s.required + " — provided: " + totalPoints);
+            s.state.set(TxState.OPEN);
+            p.sendMessage(plugin.getMessages().get(Messages.Key.NOT_ENOUGH_POINTS, s.required, totalPoints));
+            return false;
+        }
+
+        // Plan what is consumed (least overpay) and, for carts, which inputs pay for which line
+        long planStart = System.nanoTime();
+        int[] take = ExchangePlanner.plan(slotRate, slotCount, inputs, s.required);
+        int[] linePoints = new int[s.lines.size()];
+        for (int l = 0; l < linePoints.length; l++) linePoints[l] = s.lines.get(l).points();
+        int[][] lineTake = take != null ? ExchangePlanner.allocate(slotRate, take, inputs, linePoints) : null;
+        recordPlanLatency(System.nanoTime() - planStart);
+        if (take == null) {
+            s.state.set(TxState.OPEN);
+            p.sendMessage(plugin.getMessages().get(Messages.Key.NOT_ENOUGH_POINTS, s.required, totalPoints));
             return false;
         }
 
-        // Consume items greedily until required met
-        int needed = s.required;
-        for (int slot : new ArrayList<>(matched.keySet())) {
-            if (needed <= 0) break;
+        // Commit: take every input out of the GUI first
+        List<ItemStack> untouched = new ArrayList<>();
+        List<String> partialMob = new ArrayList<>();
+        List<Integer> partialRemaining = new ArrayList<>();
+        long consumedPoints = 0;
+        for (int n = 0; n < inputs; n++) {
+            int slot = inputSlots[n];
             ItemStack is = top.getItem(slot);
+            top.setItem(slot, null);
             if (is == null) continue;
-            String matchedMob = matchItemToMob(is, mobMap.keySet());
-            int rate = mobMap.getOrDefault(matchedMob, 1);
-            int amt = getEffectiveStackCount(is);
-            int stackWorth = amt * rate;
-            if (stackWorth <= needed) {
-                // consume entire stack/item from GUI
-                top.setItem(slot, null);
-                needed -= stackWorth;
-            } else {
-                // Partial consumption: take only what is needed based on rate, return leftover to player via RoseStacker give
-                int itemsToTake = (needed + rate - 1) / rate; // ceil
-                int remaining = Math.max(0, amt - itemsToTake);
-
-                // Remove item from GUI regardless; we will return leftover to player inventory
-                top.setItem(slot, null);
-
-                // If there is leftover, give it back to the player using RoseStacker command to preserve metadata
-                if (remaining > 0 && matchedMob != null) {
-                    boolean gaveBack = spawnerManager.giveSpawnerViaCommand(p, matchedMob, remaining);
-                    if (!gaveBack) {
-                        // Fallback: attempt plain spawner items with display name
-                        ItemStack leftover = new ItemStack(Material.SPAWNER, remaining);
-                        ItemMeta mt = leftover.getItemMeta();
-                        if (mt != null) {
-                            mt.setDisplayName(matchedMob + " Spawner");
-                            leftover.setItemMeta(mt);
-                        }
-                        Map<Integer, ItemStack> left = p.getInventory().addItem(leftover);
-                        if (!left.isEmpty()) {
-                            World w = p.getWorld();
-                            for (ItemStack item : left.values()) w.dropItemNaturally(p.getLocation(), item);
-                        }
-                    }
-                }
-
-                needed -= itemsToTake * rate;
+            String matchedMob = slotMob[n];
+            if (matchedMob == null || take[n] <= 0) {
+                // not a spawner we score, or not needed: goes back as-is
+                untouched.add(is);
+                continue;
+            }
+            int remaining = slotCount[n] - take[n];
+            // Partial consumption: leftover is given back via RoseStacker
+            if (remaining > 0) {
+                partialMob.add(matchedMob);
+                partialRemaining.add(remaining);
             }
+            consumedPoints += (long) take[n] * slotRate[n];
         }
-
-        // Give target spawner via RoseStacker command (ensures correct metadata)
-        boolean gave = spawnerManager.giveSpawnerViaCommand(p, s.mobKey, 1);
-        if (!gave) {
-            // fallback: create plain SPAWNER item named
-            ItemStack target = new ItemStack(Material.SPAWNER, 1);
-            ItemMeta mt = target.getItemMeta();
-            mt.setDisplayName(s.mobKey + " Spawner");
-            target.setItemMeta(mt);
-            Map<Integer, ItemStack> leftover = p.getInventory().addItem(target);
-            if (!leftover.isEmpty()) {
-                World w = p.getWorld();
-                for (ItemStack item : leftover.values()) w.dropItemNaturally(p.getLocation(), item);
+        plugin.getMetrics().add("planner.overpaid-points", consumedPoints - s.required);
+        s.state.set(TxState.COMMITTED);
+        sessions.remove(p.getUniqueId(), s);
+        if (s.isCart()) clearCart(p.getUniqueId());
+        if (!completionListeners.isEmpty()) {
+            // One record per line so history and storage keep one target per exchange
+            long now = System.currentTimeMillis();
+            for (int l = 0; l < linePoints.length; l++) {
+                Map<String, Integer> consumed = new LinkedHashMap<>();
+                for (int n = 0; n < inputs; n++) {
+                    if (lineTake[l][n] > 0) consumed.merge(slotMob[n], lineTake[l][n], Integer::sum);
+                }
+                publishCompletion(new ExchangeRecord(l == 0 ? s.txId : nextTxId(), now, p.getUniqueId(),
+                        s.lines.get(l).mob, linePoints[l], consumed));
             }
         }
 
-        p.sendMessage(ChatColor.GREEN + "Exchange completed for " + s.mobKey + "!");
-        sessions.remove(p.getUniqueId());
+        // Payout: targets, partial leftovers, then untouched inputs
+        // Give target spawners via RoseStacker command (ensures correct metadata)
+        for (CartLine line : s.lines) payout(p, line.mob, line.quantity);
+        for (int n = 0; n < partialMob.size(); n++) payout(p, partialMob.get(n), partialRemaining.get(n));
+        giveOrMail(p, untouched);
+
+        p.sendMessage(plugin.getMessages().get(Messages.Key.EXCHANGE_COMPLETE, s.label()));
         p.closeInventory();
         return true;
     }
 
+    private void recordPlanLatency(long nanos) {
+        long micros = nanos / 1000L;
+        planLastMicros = micros;
+        if (micros > planMaxMicros) planMaxMicros = micros;
+        plugin.getMetrics().increment("planner.runs");
+        plugin.getMetrics().add("planner.used-micros", micros);
+    }
+
+    /**
+     * Convert a placed (RoseStacker stacked) spawner into target in place: the stack's value at the base
+     * rate pays for as many targets as the player's tier cost allows, and the block becomes a target
+     * stack of that size, up to RoseStacker's max stack size; targets above that and spawners not needed for
+     * the conversion are paid out like partial GUI inputs.
+     * No item entities, inventory scans or display-name parsing are involved.
+     */
+    public boolean convertPlaced(Player p, org.bukkit.block.Block block, String target) {
+        Messages messages = plugin.getMessages();
+        // The GUI may have stayed open while the player walked off
+        SpawnerManager.PlacedSpawner placed = block != null && block.getWorld() == p.getWorld()
+                && block.getLocation().distanceSquared(p.getLocation()) <= 64 ? spawnerManager.getPlacedSpawner(block) : null;
+        if (placed == null) {
+            p.sendMessage(messages.get(Messages.Key.CONVERT_NO_SPAWNER));
+            return false;
+        }
+        if (!mayModify(p, block)) {
+            p.sendMessage(messages.get(Messages.Key.CONVERT_DENIED));
+            return false;
+        }
+        Map<String,Integer> mobMap = plugin.getRateTable().rates();
+        Integer fromRate = mobMap.get(placed.mobKey);
+        if (fromRate == null) {
+            p.sendMessage(messages.get(Messages.Key.CONVERT_UNKNOWN_MOB, placed.mobKey));
+            return false;
+        }
+        if (!mobMap.containsKey(target)) {
+            p.sendMessage(messages.get(Messages.Key.CONVERT_UNKNOWN_MOB, target));
+            return false;
+        }
+        if (target.equals(placed.mobKey)) {
+            p.sendMessage(messages.get(Messages.Key.CONVERT_SAME_MOB, target));
+            return false;
+        }
+        int cost = plugin.getRateTiers().tables().cost(plugin.getRateTiers().tierOf(p), target, mobMap.get(target));
+        long points = (long) placed.stackSize * fromRate;
+        int count = (int) Math.min(Integer.MAX_VALUE / Math.max(1, cost), points / Math.max(1, cost));
+        if (count <= 0) {
+            p.sendMessage(messages.get(Messages.Key.NOT_ENOUGH_POINTS, cost, points));
+            return false;
+        }
+        int taken = unitsToTake(fromRate, placed.stackSize, count * cost);
+        // The block holds at most RoseStacker's max stack for the target (one without a tracked stack);
+        // targets beyond that are paid out like the unused inputs
+        int maxStack = placed.stack != null ? spawnerManager.getMaxPlacedStackSize(target) : 1;
+        int placedCount = Math.min(count, maxStack);
+        if (!spawnerManager.setPlacedSpawner(block, placed, target, placedCount)) {
+            p.sendMessage(messages.get(Messages.Key.CONVERT_FAILED));
+            return false;
+        }
+        plugin.getMetrics().increment("convert.completed");
+        if (count > placedCount) payout(p, target, count - placedCount);
+        int remaining = placed.stackSize - taken;
+        if (remaining > 0) payout(p, placed.mobKey, remaining);
+        if (!completionListeners.isEmpty()) {
+            Map<String, Integer> consumed = new LinkedHashMap<>();
+            consumed.put(placed.mobKey, taken);
+            publishCompletion(new ExchangeRecord(nextTxId(), System.currentTimeMillis(), p.getUniqueId(), target, count * cost, consumed));
+        }
+        p.sendMessage(messages.get(Messages.Key.CONVERT_COMPLETE, taken, placed.mobKey, count, target));
+        return true;
+    }
+
+    /**
+     * Ask claim/protection plugins whether the player may use this block, the same way a right-click on it
+     * would: a probe interact event is fired and the conversion is refused if any listener denies it.
+     */
+    private boolean mayModify(Player p, org.bukkit.block.Block block) {
+        ConvertProbe probe = new ConvertProbe(p, block);
+        plugin.getServer().getPluginManager().callEvent(probe);
+        return probe.useInteractedBlock() != org.bukkit.event.Event.Result.DENY;
+    }
+
+    /** Protection probe for in-place conversion; RSX's own interact handler ignores it. */
+    static final class ConvertProbe extends org.bukkit.event.player.PlayerInteractEvent {
+        ConvertProbe(Player p, org.bukkit.block.Block block) {
+            super(p, org.bukkit.event.block.Action.RIGHT_CLICK_BLOCK, p.getInventory().getItemInMainHand(), block,
+                    org.bukkit.block.BlockFace.UP, EquipmentSlot.HAND);
+        }
+    }
+
+    /**
+     * /rsx deposit: turn every exchangeable spawner in the player's inventory into wallet points at the
+     * base rate. One scan scores the inventory, then the scored slots are cleared and the total credited once.
+     */
+    public void depositToWallet(Player p) {
+        PointsWallet wallet = plugin.getWallet();
+        Messages messages = plugin.getMessages();
+        Map<String,Integer> mobMap = plugin.getRateTable().rates();
+        PlayerInventory inv = p.getInventory();
+        ItemStack[] contents = inv.getStorageContents();
+        int[] slots = new int[contents.length];
+        int found = 0;
+        int spawners = 0;
+        long points = 0;
+        for (int i = 0; i < contents.length; i++) {
+            ItemStack it = contents[i];
+            if (it == null) continue;
+            String match = matchItemToMob(it, mobMap.keySet());
+            if (match == null) continue;
+            int count = getEffectiveStackCount(it);
+            points += (long) mobMap.getOrDefault(match, 1) * count;
+            spawners += count;
+            slots[found++] = i;
+        }
+        if (found == 0) {
+            p.sendMessage(messages.get(Messages.Key.WALLET_NOTHING));
+            return;
+        }
+        for (int n = 0; n < found; n++) contents[slots[n]] = null;
+        inv.setStorageContents(contents);
+        long balance = wallet.credit(p.getUniqueId(), points);
+        plugin.getMetrics().add("wallet.deposited", spawners);
+        p.sendMessage(messages.get(Messages.Key.WALLET_DEPOSITED, spawners, points, balance));
+    }
+
+    /**
+     * /rsx buy: pay amount targets from the wallet at the player's tier cost. Pure arithmetic on the
+     * balance; the targets are paid out like a GUI exchange and reported to the completion listeners.
+     */
+    public boolean buyFromWallet(Player p, String target, int amount) {
+        Messages messages = plugin.getMessages();
+        Integer rate = plugin.getRateTable().rates().get(target);
+        if (rate == null) {
+            p.sendMessage(messages.get(Messages.Key.CONVERT_UNKNOWN_MOB, target));
+            return false;
+        }
+        int cost = plugin.getRateTiers().tables().cost(plugin.getRateTiers().tierOf(p), target, rate);
+        long points = (long) cost * amount;
+        PointsWallet wallet = plugin.getWallet();
+        // Records carry int points; larger buys are split by the player
+        if (points > Integer.MAX_VALUE || !wallet.debit(p.getUniqueId(), points)) {
+            p.sendMessage(messages.get(Messages.Key.NOT_ENOUGH_POINTS, points, wallet.balance(p.getUniqueId())));
+            return false;
+        }
+        payout(p, target, amount);
+        plugin.getMetrics().add("wallet.bought", amount);
+        if (!completionListeners.isEmpty()) {
+            publishCompletion(new ExchangeRecord(nextTxId(), System.currentTimeMillis(), p.getUniqueId(), target, (int) points,
+                    Collections.emptyMap()));
+        }
+        p.sendMessage(messages.get(Messages.Key.WALLET_BOUGHT, amount, target, points, wallet.balance(p.getUniqueId())));
+        return true;
+    }
+
+    /**
+     * Greedy consumption rule of exchange stations, in-place conversion and the planner's fallback for large
+     * exchanges: an input worth no more than what is still needed is taken whole, otherwise only
+     * ceil(needed / rate) of its spawners are taken.
+     * Returns 0 once nothing is needed.
+     */
+    static int unitsToTake(int rate, int amount, int needed) {
+        if (needed <= 0) return 0;
+        if ((long) rate * amount <= needed) return amount;
+        return (needed + rate - 1) / rate;
+    }
+
+    /** Transaction id, unique across restarts (see TX_SEQ). */
+    static long nextTxId() {
+        return TX_SEQ.incrementAndGet();
+    }
+
+    /** Hand a committed exchange to the completion listeners (journal, storage, history). */
+    void publishCompletion(ExchangeRecord record) {
+        for (Consumer<ExchangeRecord> l : completionListeners) {
+            try {
+                l.accept(record);
+            } catch (Throwable t) {
+                plugin.getLogger().warning("[RSX] Exchange completion listener failed: " + t);
+            }
+        }
+    }
+
+    /**
+     * Give spawners to the player; whatever does not fit goes to the mailbox.
+     * - Bukkit: RoseStacker's give command on the main thread, falling back to built spawner items. With no
+     *   free slot the spawners go straight to the mailbox, since the give command would drop them.
+     * - Folia: console commands run on the global region, which must not touch the player's inventory, so the
+     *   spawner items are built and added on the player's own thread. If the player leaves first, the
+     *   spawners go to the mailbox.
+     */
+    private void payout(Player p, String mob, int amount) {
+        RSXScheduler scheduler = plugin.getScheduler();
+        if (scheduler.isFolia()) {
+            scheduler.runForPlayer(p, () -> giveSpawnerItems(p, mob, amount),
+                    () -> plugin.getMailbox().deliver(p.getUniqueId(), mob, amount));
+            return;
+        }
+        if (p.getInventory().firstEmpty() < 0) {
+            plugin.getMailbox().deliver(p.getUniqueId(), mob, amount);
+            p.sendMessage(plugin.getMessages().get(Messages.Key.MAILBOX_STORED, amount));
+            return;
+        }
+        if (!spawnerManager.giveSpawnerViaCommand(p, mob, amount)) giveSpawnerItems(p, mob, amount);
+    }
+
+    private void giveSpawnerItems(Player p, String mob, int amount) {
+        int rest = 0;
+        for (ItemStack item : spawnerManager.createSpawnerItems(mob, amount)) {
+            for (ItemStack left : p.getInventory().addItem(item).values()) rest += getEffectiveStackCount(left);
+        }
+        if (rest <= 0) return;
+        plugin.getMailbox().deliver(p.getUniqueId(), mob, rest);
+        p.sendMessage(plugin.getMessages().get(Messages.Key.MAILBOX_STORED, rest));
+    }
+
     /**
      * Try to obtain the RoseStacker stacked item count from the ItemStack via API reflection.
      * Fallback to ItemStack#getAmount() if API is unavailable or the item is not stacked.
      */
-    private int getEffectiveStackCount(ItemStack it) {
+    int getEffectiveStackCount(ItemStack it) {
         if (it == null) return 0;
-        try {
-            Object api = plugin.getRsApi();
-            if (api != null) {
-                // Try common method names across RoseStacker versions
-                java.lang.reflect.Method m = null;
-                try {
-                    m = api.getClass().getMethod("getStackedItem", ItemStack.class);
-                } catch (NoSuchMethodException ignored) {}
-                if (m != null) {
-                    Object stackedItem = m.invoke(api, it);
-                    if (stackedItem != null) {
-                        try {
-                            java.lang.reflect.Method getSize = stackedItem.getClass().getMethod("getStackSize");
-                            Object sizeObj = getSize.invoke(stackedItem);
-                            if (sizeObj instanceof Integer) {
-                                int sz = (Integer) sizeObj;
-                                if (sz > 0) return sz;
-                            }
-                        } catch (NoSuchMethodException ignored) {
-                            // try alternate names
-                            try {
-                                java.lang.reflect.Method getAmount = stackedItem.getClass().getMethod("getAmount");
-                                Object sizeObj = getAmount.invoke(stackedItem);
-                                if (sizeObj instanceof Integer) {
-                                    int sz = (Integer) sizeObj;
-                                    if (sz > 0) return sz;
-                                }
-                            } catch (NoSuchMethodException ignored2) {}
-                        }
-                    }
-                }
-            }
-        } catch (Throwable ignored) {}
-        // Heuristic fallback for RoseStacker-style display names
-        try {
-            if (it.getType() == Material.SPAWNER && it.hasItemMeta()) {
-                ItemMeta meta = it.getItemMeta();
-                String dn = meta.hasDisplayName() ? ChatColor.stripColor(meta.getDisplayName()) : "";
-                if (dn != null && !dn.isEmpty()) {
-                    // Patterns: "6 x Zombie Spawner" (prefix) or "Zombie Spawner x6" (suffix)
-                    Pattern prefix = Pattern.compile("^\\s*(\\d+)\\s*(?:x|X|×)\\s+.*");
-                    Matcher mp = prefix.matcher(dn);
-                    if (mp.matches()) {
-                        int val = Integer.parseInt(mp.group(1));
-                        if (val > 0) return val;
-                    }
-                    Pattern suffix = Pattern.compile(".*(?:x|X|×)\\s*(\\d+)\\s*$");
-                    Matcher ms = suffix.matcher(dn);
-                    if (ms.matches()) {
-                        int val = Integer.parseInt(ms.group(1));
-                        if (val > 0) return val;
-                    }
-                }
-                // Check lore lines for any integer as a last resort
-                if (meta.hasLore()) {
-                    for (String line : meta.getLore()) {
-                        String stripped = ChatColor.stripColor(line);
-                        Matcher mNum = Pattern.compile(".*?(\\d+).*?").matcher(stripped);
-                        if (mNum.matches()) {
-                            int val = Integer.parseInt(mNum.group(1));
-                            if (val > 0) return val;
-                        }
-                    }
-                }
-            }
-        } catch (Throwable ignored) {}
-        // Fallback to vanilla amount
-        return it.getAmount();
-    }
-
-    private String matchItemToMob(ItemStack it, Set<String> mobKeys) {
-        if (it == null) return null;
-        // Tighten: only count SPAWNER items to avoid eggs/other icons
-        if (it.getType() != Material.SPAWNER) return null;
-        if (it.hasItemMeta() && it.getItemMeta().hasDisplayName()) {
-            String dn = it.getItemMeta().getDisplayName().toUpperCase(Locale.ROOT);
-            for (String mob : mobKeys) {
-                if (dn.contains(mob)) return mob;
-            }
+        ExchangeEvents.StackCount evt = new ExchangeEvents.StackCount();
+        evt.begin();
+        int count = identifier.stackCount(it, evt);
+        if (evt.shouldCommit()) {
+            evt.count = count;
+            evt.commit();
+        }
+        return count;
+    }
+
+    String matchItemToMob(ItemStack it, Set<String> mobKeys) {
+        return identifier.mob(it, mobKeys);
+    }
+
+    public enum TxState { OPEN, VALIDATING, COMMITTED }
+
+    /** One target of a session: quantity spawners of mob at cost points each. */
+    public static final class CartLine {
+        public final String mob;
+        public final int quantity;
+        public final int cost;
+
+        CartLine(String mob, int quantity, int cost) {
+            this.mob = mob;
+            this.quantity = quantity;
+            this.cost = cost;
         }
-        return null;
+
+        int points() { return quantity * cost; }
     }
 
     public static class Session {
+        /** First (for single-target sessions the only) target. */
         public final String mobKey;
         public final int required;
+        public final List<CartLine> lines;
+        /** Monotonically increasing id of the exchange transaction this session represents. */
+        public final long txId;
+        final AtomicReference<TxState> state = new AtomicReference<>(TxState.OPEN);
+        final AtomicBoolean refreshQueued = new AtomicBoolean();
+        volatile Inventory inventory;
+        volatile long lastActivity = System.currentTimeMillis();
+        // Last rendered confirm/marker state (matches the freshly built GUI); only touched on the player's thread
+        boolean renderedEnabled;
+        int renderedPoints;
+        int markerSlot = -1;
         public Session(String mobKey, int required) {
             this.mobKey = mobKey;
             this.required = required;
+            this.lines = Collections.singletonList(new CartLine(mobKey, 1, required));
+            this.txId = nextTxId();
         }
+
+        /** Cart session; the caller checks that the lines add up to no more than Integer.MAX_VALUE points. */
+        Session(List<CartLine> lines) {
+            this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+            this.mobKey = lines.get(0).mob;
+            int total = 0;
+            for (CartLine l : lines) total += l.points();
+            this.required = total;
+            this.txId = nextTxId();
+        }
+
+        public boolean isCart() {
+            return lines.size() > 1 || lines.get(0).quantity > 1;
+        }
+
+        /** Lines to list on the marker, or null for a single-target session. */
+        List<CartLine> cartLines() {
+            return isCart() ? lines : null;
+        }
+
+        /** Name in the GUI title and on the marker. */
+        String guiName() {
+            return isCart() ? "Cart" : mobKey;
+        }
+
+        /** Shown in the completion message. */
+        String label() {
+            if (!isCart()) return mobKey;
+            StringBuilder sb = new StringBuilder();
+            for (CartLine l : lines) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(l.quantity).append("x ").append(l.mob);
+            }
+            return sb.toString();
+        }
+
+        public TxState getState() { return state.get(); }
     }
 }
@@ -0,0 +1,138 @@
+package com.farahsoftware.rsx;
+
+import java.util.Arrays;
+
+/**
+ * Decides which inserted spawners an exchange consumes, so what is left over (overpaid points) is as small
+ * as possible, and splits the consumed spawners across the lines of a cart.
+ *
+ * - Inputs are grouped by rate; a bounded subset-sum over the points (up to DP_LIMIT) finds the smallest
+ *   reachable total &gt;= required. Larger exchanges fall back to the greedy rule of ExchangeManager.unitsToTake.
+ * - Units are then taken from the inputs of each rate in slot order.
+ *
+ * Pure arithmetic on primitive arrays; no Bukkit types.
+ */
+final class ExchangePlanner {
+    /** Largest point total planned exactly; one int and one short array entry per point. */
+    static final int DP_LIMIT = 1 << 16;
+
+    private ExchangePlanner() {}
+
+    /**
+     * Units to take from each of the first n inputs, or null if the inputs are worth less than required.
+     */
+    static int[] plan(int[] rate, int[] count, int n, int required) {
+        long total = 0;
+        int maxRate = 1;
+        for (int i = 0; i < n; i++) {
+            total += (long) rate[i] * count[i];
+            maxRate = Math.max(maxRate, rate[i]);
+        }
+        if (total < required) return null;
+        if (required <= 0) return new int[n];
+
+        // Distinct rates and how many units of each could ever be useful
+        int[] rates = new int[n];
+        long[] units = new long[n];
+        int groups = 0;
+        for (int i = 0; i < n; i++) {
+            if (count[i] <= 0 || rate[i] <= 0) continue;
+            int g = 0;
+            while (g < groups && rates[g] != rate[i]) g++;
+            if (g == groups) rates[groups++] = rate[i];
+            units[g] += count[i];
+        }
+        long limit = (long) required + maxRate - 1;
+        int[] perRate = limit <= DP_LIMIT ? exact(rates, units, groups, required, (int) limit) : null;
+        if (perRate == null) return greedy(rate, count, n, required);
+
+        int[] take = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (count[i] <= 0 || rate[i] <= 0) continue;
+            int g = 0;
+            while (rates[g] != rate[i]) g++;
+            int t = Math.min(count[i], perRate[g]);
+            take[i] = t;
+            perRate[g] -= t;
+        }
+        return take;
+    }
+
+    /**
+     * Bounded subset-sum: units per rate group reaching the smallest total &gt;= required, at most limit.
+     * An optimal cover overshoots by less than the largest rate, so limit = required + maxRate - 1 always has one.
+     */
+    private static int[] exact(int[] rates, long[] units, int groups, int required, int limit) {
+        // last[s]: group that first reached total s (-1 = unreachable), cnt[s]: units of that group on the path
+        short[] last = new short[limit + 1];
+        int[] cnt = new int[limit + 1];
+        Arrays.fill(last, (short) -1);
+        last[0] = Short.MAX_VALUE;
+        for (int g = 0; g < groups; g++) {
+            int r = rates[g];
+            long cap = Math.min(units[g], (limit + r - 1L) / r);
+            for (int s = r; s <= limit; s++) {
+                int prev = s - r;
+                if (last[s] != -1 || last[prev] == -1) continue;
+                // Totals reached by earlier groups start this group's unit count from zero
+                int c = last[prev] == g ? cnt[prev] + 1 : 1;
+                if (c > cap) continue;
+                last[s] = (short) g;
+                cnt[s] = c;
+            }
+        }
+        int best = -1;
+        for (int s = required; s <= limit; s++) {
+            if (last[s] != -1) {
+                best = s;
+                break;
+            }
+        }
+        if (best < 0) return null;
+        int[] perRate = new int[groups];
+        for (int s = best; s > 0; s -= rates[last[s]]) perRate[last[s]]++;
+        return perRate;
+    }
+
+    private static int[] greedy(int[] rate, int[] count, int n, int required) {
+        int[] take = new int[n];
+        int needed = required;
+        for (int i = 0; i < n && needed > 0; i++) {
+            if (rate[i] <= 0) continue;
+            take[i] = ExchangeManager.unitsToTake(rate[i], count[i], needed);
+            needed -= take[i] * rate[i];
+        }
+        return take;
+    }
+
+    /**
+     * Split consumed units across cart lines worth linePoints each, in input order: every line is paid in full
+     * before the next one starts, and the last line gets whatever is left (the overpay). Returns units[line][input].
+     */
+    static int[][] allocate(int[] rate, int[] take, int n, int[] linePoints) {
+        int lines = linePoints.length;
+        int[][] out = new int[lines][n];
+        int line = 0;
+        long needed = linePoints[0];
+        for (int i = 0; i < n; i++) {
+            int left = take[i];
+            while (left > 0) {
+                if (line == lines - 1) {
+                    out[line][i] += left;
+                    break;
+                }
+                int r = Math.max(1, rate[i]);
+                int k = (int) Math.min(left, (needed + r - 1) / r);
+                out[line][i] += k;
+                left -= k;
+                needed -= (long) k * r;
+                // Overshoot of this line counts towards the next ones
+                while (needed <= 0 && line < lines - 1) {
+                    line++;
+                    needed += linePoints[line];
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,29 @@
+package com.farahsoftware.rsx;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable record of one completed exchange: who, what they received, what was consumed and when.
+ * Produced by ExchangeManager on commit and handed to completion listeners (journal, storage, ...).
+ */
+public final class ExchangeRecord {
+    public final long txId;
+    public final long timestamp;
+    public final UUID player;
+    public final String target;
+    public final int points;
+    /** mobKey -> spawners consumed, in consumption order */
+    public final Map<String, Integer> consumed;
+
+    public ExchangeRecord(long txId, long timestamp, UUID player, String target, int points, Map<String, Integer> consumed) {
+        this.txId = txId;
+        this.timestamp = timestamp;
+        this.player = player;
+        this.target = target;
+        this.points = points;
+        this.consumed = Collections.unmodifiableMap(new LinkedHashMap<>(consumed));
+    }
+}
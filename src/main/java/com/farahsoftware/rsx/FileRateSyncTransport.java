@@ -0,0 +1,96 @@
+package com.farahsoftware.rsx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.function.Consumer;
+
+/**
+ * Shared-file transport: messages are appended (Base64, one per line) to a log file under an exclusive
+ * lock, and every node tails the file. Meant for servers sharing a volume, or for local testing.
+ */
+public class FileRateSyncTransport implements RateSyncTransport {
+    // FileLock is per-JVM exclusive; serialise publishers in this JVM to avoid OverlappingFileLockException
+    private static final Object JVM_LOCK = new Object();
+
+    private final File file;
+    private final long pollMillis;
+    private volatile boolean running;
+    private Thread tailer;
+
+    public FileRateSyncTransport(File file, long pollMillis) {
+        this.file = file;
+        this.pollMillis = Math.max(50, pollMillis);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> handler, Runnable onSubscribed) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) throw new IOException("Could not create " + parent);
+        long start = file.exists() ? file.length() : 0L;
+        running = true;
+        tailer = new Thread(() -> tail(handler, start), "RSX-RateSync-File");
+        tailer.setDaemon(true);
+        tailer.start();
+        // Everything appended after start is tailed, so the subscription is live already
+        onSubscribed.run();
+    }
+
+    private void tail(Consumer<String> handler, long startPos) {
+        long pos = startPos;
+        StringBuilder partial = new StringBuilder();
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        while (running) {
+            try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                if (ch.size() < pos) pos = 0; // truncated/rotated by an admin
+                ch.position(pos);
+                int n;
+                while ((n = ch.read(buf)) > 0) {
+                    pos += n;
+                    buf.flip();
+                    partial.append(StandardCharsets.US_ASCII.decode(buf));
+                    buf.clear();
+                    int nl;
+                    while ((nl = partial.indexOf("\n")) >= 0) {
+                        String line = partial.substring(0, nl).trim();
+                        partial.delete(0, nl + 1);
+                        if (line.isEmpty()) continue;
+                        try {
+                            handler.accept(new String(Base64.getDecoder().decode(line), StandardCharsets.UTF_8));
+                        } catch (IllegalArgumentException ignored) {}
+                    }
+                }
+            } catch (IOException ignored) {
+                // file not there yet; try again next poll
+            }
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void publish(String message) throws IOException {
+        byte[] line = (Base64.getEncoder().encodeToString(message.getBytes(StandardCharsets.UTF_8)) + "\n").getBytes(StandardCharsets.US_ASCII);
+        synchronized (JVM_LOCK) {
+            try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                 FileLock ignored = ch.lock()) {
+                ByteBuffer b = ByteBuffer.wrap(line);
+                while (b.hasRemaining()) ch.write(b);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (tailer != null) tailer.interrupt();
+    }
+}
@@ -16,68 +16,175 @@ public class GuiManager {
     private final ConfigManager cfg;
     private final NamespacedKey guiLockKey;
     private final NamespacedKey mobKey;
+    private final NamespacedKey markerKey;
+    private final NamespacedKey buttonKey;
 
     public GuiManager(RoseStackerXchange plugin) {
         this.plugin = plugin;
         this.cfg = plugin.getConfigManager();
         this.guiLockKey = new NamespacedKey(plugin, "rsx_gui_locked");
         this.mobKey = new NamespacedKey(plugin, "rsx_mob");
+        this.markerKey = new NamespacedKey(plugin, "rsx_marker");
+        this.buttonKey = new NamespacedKey(plugin, "rsx_button");
     }
 
-    /* Selection GUI (hard-coded first GUI, alphabetical, paginated) */
-    public Inventory buildSelectionPage(int page) {
-        Map<String,Integer> mobMap = cfg.getMobMap();
-        List<String> all = new ArrayList<>(mobMap.keySet());
-        Collections.sort(all, String.CASE_INSENSITIVE_ORDER);
+    static final int MARKER_SLOT = 4;
 
-        int perPage = 28;
-        int totalPages = Math.max(1, (all.size() + perPage - 1) / perPage);
-        page = Math.max(0, Math.min(page, totalPages - 1));
+    /** Values of the rsx_button tag on the exchange GUI controls. */
+    public static final String BUTTON_CANCEL = "cancel";
+    public static final String BUTTON_CONFIRM = "confirm";
+    public static final String BUTTON_CONFIRM_DISABLED = "confirm-disabled";
 
-        String title = ChatColor.translateAlternateColorCodes('&', "&6RSX - Select Spawner") + " (" + (page+1) + "/" + totalPages + ")";
-        Inventory inv = Bukkit.createInventory(null, 54, title);
+    /* Selection GUI (hard-coded first GUI, alphabetical, paginated) */
+    public static final String SELECTION_TITLE = ChatColor.translateAlternateColorCodes('&', "&6RSX - Select Spawner");
+    static final int[] CONTENT_SLOTS = {10,11,12,13,14,15,16,19,20,21,22,23,24,25,28,29,30,31,32,33,34,37,38,39,40,41,42,43};
+    static final int PREV_SLOT = 45;
+    static final int PAGE_SLOT = 49;
+    static final int NEXT_SLOT = 53;
 
-        // Fill with filler locked items
-        ItemStack filler = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
-        ItemMeta fm = filler.getItemMeta(); fm.setDisplayName(" "); filler.setItemMeta(fm);
-        for (int i = 0; i < 54; i++) {
-            ItemStack copy = filler.clone();
-            ItemMeta cm = copy.getItemMeta();
-            cm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
-            copy.setItemMeta(cm);
-            inv.setItem(i, copy);
-        }
+    /**
+     * Holder of an open selection GUI. Keeps the page so flips only swap the content slots of the
+     * inventory that is already open, instead of building and opening a new window.
+     */
+    public static final class SelectionHolder implements InventoryHolder {
+        private Inventory inventory;
+        private final int tier;
+        private final org.bukkit.block.Block convertBlock;
+        private int page = -1;
 
-        List<Integer> contentSlots = Arrays.asList(10,11,12,13,14,15,16,19,20,21,22,23,24,25,28,29,30,31,32,33,34,37,38,39,40,41,42,43);
-        int start = page * perPage;
-        for (int i = 0; i < contentSlots.size(); i++) {
-            int idx = start + i;
-            if (idx >= all.size()) break;
-            String mob = all.get(idx);
-            int rate = mobMap.getOrDefault(mob, 1);
-            ItemStack item = buildSelectionItem(mob, rate);
-            ItemMeta meta = item.getItemMeta();
-            meta.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true"); // lock
-            meta.getPersistentDataContainer().set(mobKey, PersistentDataType.STRING, mob);
-            item.setItemMeta(meta);
-            inv.setItem(contentSlots.get(i), item);
+        SelectionHolder(int tier, org.bukkit.block.Block convertBlock) {
+            this.tier = tier;
+            this.convertBlock = convertBlock;
         }
 
-        // nav arrows
+        @Override
+        public Inventory getInventory() { return inventory; }
+
+        public int getPage() { return page; }
+
+        /** Placed spawner to convert in place when a mob is picked, or null for a normal exchange. */
+        public org.bukkit.block.Block getConvertBlock() { return convertBlock; }
+    }
+
+    // Selection icons per tier, rebuilt when the tier cost tables (and so the rates) change.
+    // Concurrent because Folia opens GUIs from several region threads.
+    private volatile RateTiers.Tables iconTables;
+    private volatile int iconVersion;
+    private final Map<Integer, ItemStack[]> iconsByTier = new java.util.concurrent.ConcurrentHashMap<>();
+    private volatile ItemStack selectionFiller;
+
+    public Inventory buildSelectionPage(Player viewer, int page) {
+        return buildSelectionPage(viewer, page, null);
+    }
+
+    /**
+     * Selection GUI; with a convertBlock, picking a mob converts that placed spawner instead of opening an exchange.
+     */
+    public Inventory buildSelectionPage(Player viewer, int page, org.bukkit.block.Block convertBlock) {
+        SelectionHolder holder = new SelectionHolder(plugin.getRateTiers().tierOf(viewer), convertBlock);
+        Inventory inv = Bukkit.createInventory(holder, 54, SELECTION_TITLE);
+        holder.inventory = inv;
+
+        // Static frame: locked filler everywhere, nav arrows
+        ItemStack filler = selectionFiller();
+        for (int i = 0; i < 54; i++) inv.setItem(i, filler);
         ItemStack prev = new ItemStack(Material.ARROW);
         ItemStack next = new ItemStack(Material.ARROW);
-        ItemMeta pm = prev.getItemMeta(); pm.setDisplayName(ChatColor.YELLOW + "Previous Page"); prev.setItemMeta(pm);
-        ItemMeta nm = next.getItemMeta(); nm.setDisplayName(ChatColor.YELLOW + "Next Page"); next.setItemMeta(nm);
+        Messages messages = plugin.getMessages();
+        ItemMeta pm = prev.getItemMeta(); pm.setDisplayName(messages.get(Messages.Key.GUI_PREVIOUS_PAGE));
+        ItemMeta nm = next.getItemMeta(); nm.setDisplayName(messages.get(Messages.Key.GUI_NEXT_PAGE));
         pm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
         nm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
         prev.setItemMeta(pm); next.setItemMeta(nm);
-        inv.setItem(45, prev);
-        inv.setItem(53, next);
+        inv.setItem(PREV_SLOT, prev);
+        inv.setItem(NEXT_SLOT, next);
 
+        showSelectionPage(holder, page);
         return inv;
     }
 
-    private ItemStack buildSelectionItem(String mobKeyStr, int rate) {
+    /**
+     * Swap the content slots (and page indicator) of an open selection GUI to another page.
+     * No-op when the page does not change.
+     */
+    public void showSelectionPage(SelectionHolder holder, int page) {
+        ExchangeEvents.GuiBuild evt = new ExchangeEvents.GuiBuild();
+        evt.begin();
+        ItemStack[] icons = selectionIcons(holder.tier);
+        int perPage = CONTENT_SLOTS.length;
+        int totalPages = Math.max(1, (icons.length + perPage - 1) / perPage);
+        page = Math.max(0, Math.min(page, totalPages - 1));
+        if (page == holder.page) return;
+        holder.page = page;
+
+        Inventory inv = holder.inventory;
+        ItemStack filler = selectionFiller();
+        int start = page * perPage;
+        for (int i = 0; i < perPage; i++) {
+            int idx = start + i;
+            inv.setItem(CONTENT_SLOTS[i], idx < icons.length ? icons[idx] : filler);
+        }
+
+        ItemStack indicator = new ItemStack(Material.PAPER);
+        ItemMeta im = indicator.getItemMeta();
+        im.setDisplayName(plugin.getMessages().get(Messages.Key.GUI_PAGE, page + 1, totalPages));
+        im.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
+        indicator.setItemMeta(im);
+        inv.setItem(PAGE_SLOT, indicator);
+
+        if (evt.shouldCommit()) {
+            evt.gui = "selection";
+            evt.slotCount = perPage + 1;
+            evt.page = page;
+            evt.configVersion = cfg.getVersion();
+            evt.commit();
+        }
+    }
+
+    private ItemStack selectionFiller() {
+        if (selectionFiller == null) {
+            ItemStack filler = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
+            ItemMeta fm = filler.getItemMeta();
+            fm.setDisplayName(" ");
+            fm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
+            filler.setItemMeta(fm);
+            selectionFiller = filler;
+        }
+        return selectionFiller;
+    }
+
+    // Inventory#setItem copies the stack, so cached icons can be handed out repeatedly
+    private ItemStack[] selectionIcons(int tier) {
+        RateTiers.Tables costs = plugin.getRateTiers().tables();
+        // Rebuilt when the rates or the texts (reload) change
+        if (costs != iconTables || cfg.getVersion() != iconVersion) {
+            iconsByTier.clear();
+            iconTables = costs;
+            iconVersion = cfg.getVersion();
+        }
+        ItemStack[] icons = iconsByTier.get(tier);
+        if (icons != null) return icons;
+
+        Map<String,Integer> mobMap = plugin.getRateTable().rates();
+        List<String> all = new ArrayList<>(mobMap.keySet());
+        Collections.sort(all, String.CASE_INSENSITIVE_ORDER);
+        String tierName = plugin.getRateTiers().tierName(tier);
+        icons = new ItemStack[all.size()];
+        for (int i = 0; i < all.size(); i++) {
+            String mob = all.get(i);
+            int rate = mobMap.getOrDefault(mob, 1);
+            ItemStack item = buildSelectionItem(mob, rate, costs.cost(tier, mob, rate), tierName, costs.quotes, tier);
+            ItemMeta meta = item.getItemMeta();
+            meta.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true"); // lock
+            meta.getPersistentDataContainer().set(mobKey, PersistentDataType.STRING, mob);
+            item.setItemMeta(meta);
+            icons[i] = item;
+        }
+        iconsByTier.put(tier, icons);
+        return icons;
+    }
+
+    private ItemStack buildSelectionItem(String mobKeyStr, int rate, int cost, String tierName, QuoteMatrix quotes, int tier) {
         Material icon = Material.SPAWNER;
         try {
             String head = mobKeyStr.toUpperCase() + "_HEAD";
@@ -90,14 +197,38 @@ public class GuiManager {
 
         ItemStack is = new ItemStack(icon);
         ItemMeta meta = is.getItemMeta();
-        meta.setDisplayName(ChatColor.GREEN + mobKeyStr);
-        meta.setLore(Collections.singletonList(ChatColor.GRAY + "Rate: " + rate));
+        Messages messages = plugin.getMessages();
+        meta.setDisplayName(messages.get(Messages.Key.GUI_SELECTION_NAME, mobKeyStr));
+        List<String> lore = new ArrayList<>();
+        if (cost != rate && tierName != null) {
+            lore.add(messages.get(Messages.Key.GUI_RATE_REPLACED, rate));
+            lore.add(messages.get(Messages.Key.GUI_TIER_RATE, tierName, cost));
+        } else {
+            lore.add(messages.get(Messages.Key.GUI_RATE, rate));
+        }
+        // Cheapest inputs from the precomputed quote matrix: spawners per target, exact ratio
+        int to = quotes.indexOf(mobKeyStr);
+        if (to >= 0 && quotes.cheapest(tier, to).length > 0) {
+            lore.add(messages.get(Messages.Key.GUI_CHEAPEST_INPUTS));
+            for (int from : quotes.cheapest(tier, to)) {
+                int[] ratio = quotes.ratio(tier, from, to);
+                lore.add(messages.get(Messages.Key.GUI_CHEAPEST_INPUT, quotes.need(tier, from, to), quotes.mob(from), ratio[0], ratio[1]));
+            }
+        }
+        meta.setLore(lore);
         is.setItemMeta(meta);
         return is;
     }
 
     /* Exchange GUI (second GUI) */
     public Inventory buildExchangeInventory(Player player, String mobKeyStr, int required) {
+        return buildExchangeInventory(player, mobKeyStr, required, null);
+    }
+
+    /** Exchange inventory; cartLines (null for a single target) are listed on the marker. */
+    public Inventory buildExchangeInventory(Player player, String mobKeyStr, int required, List<ExchangeManager.CartLine> cartLines) {
+        ExchangeEvents.GuiBuild evt = new ExchangeEvents.GuiBuild();
+        evt.begin();
         int baseRows = cfg.getGuiRows();
         int neededInputRows = Math.max(1, (required + 8) / 9);
         int rows = Math.max(baseRows, Math.min(6, 1 + neededInputRows));
@@ -125,34 +256,100 @@ public class GuiManager {
         // clear chosen slots so players can insert items
         for (int slot : chosen) inv.setItem(slot, null);
 
-        // cancel
-        ItemStack cancel = new ItemStack(cfg.getItemMaterial("items.cancel", Material.RED_WOOL));
-        ItemMeta cm = cancel.getItemMeta(); cm.setDisplayName(cfg.getItemName("items.cancel")); cancel.setItemMeta(cm);
-        cm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
-        cancel.setItemMeta(cm);
-        inv.setItem(cfg.getCancelSlot(), cancel);
-
-        // confirm (disabled)
-        ItemStack confirmDisabled = new ItemStack(cfg.getItemMaterial("items.confirm-disabled", Material.GRAY_WOOL));
-        ItemMeta cdm = confirmDisabled.getItemMeta(); cdm.setDisplayName(cfg.getItemName("items.confirm-disabled")); confirmDisabled.setItemMeta(cdm);
-        cdm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
-        confirmDisabled.setItemMeta(cdm);
-        inv.setItem(cfg.getConfirmSlot(), confirmDisabled);
+        // cancel + confirm (disabled); ExchangeManager.Session assumes this initial render
+        Buttons buttons = buttons();
+        inv.setItem(cfg.getCancelSlot(), buttons.cancel);
+        inv.setItem(cfg.getConfirmSlot(), buttons.confirmDisabled);
 
         // marker (locked) - store mob & required
-        if (size > 4) {
-            ItemStack marker = new ItemStack(Material.PAPER);
-            ItemMeta mm = marker.getItemMeta();
-            mm.setDisplayName("rsx_marker:" + mobKeyStr + ":" + required);
-            mm.getPersistentDataContainer().set(new NamespacedKey(plugin, "rsx_marker"), PersistentDataType.STRING, mobKeyStr + ":" + required);
-            mm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
-            marker.setItemMeta(mm);
-            inv.setItem(4, marker);
-        }
+        if (size > MARKER_SLOT) inv.setItem(MARKER_SLOT, buildMarker(mobKeyStr, required, 0, cartLines));
 
+        if (evt.shouldCommit()) {
+            evt.gui = "exchange";
+            evt.mobKey = mobKeyStr;
+            evt.slotCount = size;
+            evt.configVersion = cfg.getVersion();
+            evt.commit();
+        }
         return inv;
     }
 
+    /**
+     * Marker item (locked) carrying mob & required, with Provided/Required lore for quick feedback.
+     */
+    public ItemStack buildMarker(String mobKeyStr, int required, int provided) {
+        return buildMarker(mobKeyStr, required, provided, null);
+    }
+
+    /** Marker of a cart session: the cart lines follow Provided/Required in the lore. */
+    public ItemStack buildMarker(String mobKeyStr, int required, int provided, List<ExchangeManager.CartLine> cartLines) {
+        ItemStack marker = new ItemStack(Material.PAPER);
+        ItemMeta mm = marker.getItemMeta();
+        mm.setDisplayName("rsx_marker:" + mobKeyStr + ":" + required);
+        Messages messages = plugin.getMessages();
+        List<String> lore = new ArrayList<>(Arrays.asList(messages.get(Messages.Key.GUI_REQUIRED, required),
+                messages.get(Messages.Key.GUI_PROVIDED, provided)));
+        if (cartLines != null) {
+            for (ExchangeManager.CartLine l : cartLines) {
+                lore.add(messages.get(Messages.Key.GUI_CART_LINE, l.quantity, l.mob, l.quantity * l.cost));
+            }
+        }
+        mm.setLore(lore);
+        mm.getPersistentDataContainer().set(markerKey, PersistentDataType.STRING, mobKeyStr + ":" + required);
+        mm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
+        marker.setItemMeta(mm);
+        return marker;
+    }
+
+    /**
+     * Prebuilt confirm button for the given state. The stack is shared and must not be modified;
+     * Inventory#setItem stores a copy.
+     */
+    public ItemStack confirmButton(boolean enabled) {
+        Buttons buttons = buttons();
+        return enabled ? buttons.confirmEnabled : buttons.confirmDisabled;
+    }
+
+    // Control buttons, built once per config version
+    private static final class Buttons {
+        final int version;
+        final ItemStack cancel;
+        final ItemStack confirmEnabled;
+        final ItemStack confirmDisabled;
+
+        Buttons(int version, ItemStack cancel, ItemStack confirmEnabled, ItemStack confirmDisabled) {
+            this.version = version;
+            this.cancel = cancel;
+            this.confirmEnabled = confirmEnabled;
+            this.confirmDisabled = confirmDisabled;
+        }
+    }
+
+    private volatile Buttons buttons;
+
+    private Buttons buttons() {
+        Buttons b = buttons;
+        int version = cfg.getVersion();
+        if (b == null || b.version != version) {
+            b = new Buttons(version,
+                    buildButton("items.cancel", Material.RED_WOOL, BUTTON_CANCEL),
+                    buildButton("items.confirm-enabled", Material.GREEN_WOOL, BUTTON_CONFIRM),
+                    buildButton("items.confirm-disabled", Material.GRAY_WOOL, BUTTON_CONFIRM_DISABLED));
+            buttons = b;
+        }
+        return b;
+    }
+
+    private ItemStack buildButton(String path, Material def, String id) {
+        ItemStack button = new ItemStack(cfg.getItemMaterial(path, def));
+        ItemMeta bm = button.getItemMeta();
+        bm.setDisplayName(cfg.getItemName(path));
+        bm.getPersistentDataContainer().set(guiLockKey, PersistentDataType.STRING, "true");
+        bm.getPersistentDataContainer().set(buttonKey, PersistentDataType.STRING, id);
+        button.setItemMeta(bm);
+        return button;
+    }
+
     private List<Integer> generateDynamicCandidates(int rows, boolean oddPreferred) {
         List<Integer> out = new ArrayList<>();
         int contentStartRow = 1; // row 0 reserved for controls
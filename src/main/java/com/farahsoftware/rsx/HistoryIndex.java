@@ -0,0 +1,274 @@
+package com.farahsoftware.rsx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Incremental index over completed exchanges, maintained as they commit.
+ *
+ * - Per player: a ring buffer of the most recent exchanges (history.recent-per-player), so the first
+ *   pages of /rsx history are served from memory.
+ * - Per mob: exchange/point totals as a target, spawners consumed as an input, and per-player target
+ *   counts for /rsx top.
+ *
+ * Pages beyond the ring are loaded off-thread from SQL storage. When only the journal is enabled, a
+ * per-player index of journal positions (segment number and frame offset packed in one long, 8 bytes per
+ * exchange) lets a page seek to just its own records. On enable the aggregates are seeded off-thread
+ * from whichever of the two is available, using the enable time as cutoff so live records are never
+ * counted twice. Seeding also refills the rings (and, from the journal, the position index), so the first
+ * pages after a restart come from memory. SQL pages flush queued exchanges before their offset query.
+ */
+public class HistoryIndex {
+
+    public static final class MobStats {
+        public final LongAdder exchanges = new LongAdder();
+        public final LongAdder points = new LongAdder();
+        public final LongAdder consumedAsInput = new LongAdder();
+        final Map<UUID, LongAdder> byPlayer = new ConcurrentHashMap<>();
+    }
+
+    // Journal position: segment number in the high bits, frame offset (up to 1 TiB) in the low 40
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final RoseStackerXchange plugin;
+    private final int ringCapacity;
+    private final Map<UUID, Ring> recent = new ConcurrentHashMap<>();
+    private final Map<String, MobStats> mobs = new ConcurrentHashMap<>();
+    private final Map<UUID, Positions> journaled = new ConcurrentHashMap<>();
+    private final long seedCutoff = System.currentTimeMillis();
+
+    public HistoryIndex(RoseStackerXchange plugin, RSXMetrics metrics, int ringCapacity) {
+        this.plugin = plugin;
+        this.ringCapacity = Math.max(1, ringCapacity);
+        metrics.gauge("history.players-indexed", recent::size);
+    }
+
+    /** Completion listener: O(consumed mobs), no I/O. */
+    public void record(ExchangeRecord r) {
+        recent.computeIfAbsent(r.player, k -> new Ring(ringCapacity)).add(r);
+        count(r);
+    }
+
+    private void count(ExchangeRecord r) {
+        MobStats target = stats(r.target);
+        target.exchanges.increment();
+        target.points.add(r.points);
+        target.byPlayer.computeIfAbsent(r.player, k -> new LongAdder()).increment();
+        for (Map.Entry<String, Integer> e : r.consumed.entrySet()) stats(e.getKey()).consumedAsInput.add(e.getValue());
+    }
+
+    private MobStats stats(String mob) {
+        return mobs.computeIfAbsent(mob, k -> new MobStats());
+    }
+
+    public MobStats getMobStats(String mob) {
+        return mobs.get(mob);
+    }
+
+    /**
+     * Top players by number of exchanges into this target mob. Sorts only that mob's player counters.
+     */
+    public List<Map.Entry<UUID, Long>> top(String mob, int limit) {
+        MobStats s = mobs.get(mob);
+        if (s == null) return Collections.emptyList();
+        List<Map.Entry<UUID, Long>> out = new ArrayList<>(s.byPlayer.size());
+        for (Map.Entry<UUID, LongAdder> e : s.byPlayer.entrySet()) out.add(Map.entry(e.getKey(), e.getValue().sum()));
+        out.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return out.size() > limit ? out.subList(0, limit) : out;
+    }
+
+    /**
+     * A page (0-based) of a player's exchanges, newest first. Completes immediately when the ring covers
+     * it; otherwise completes on a storage/async thread.
+     */
+    public CompletableFuture<List<ExchangeRecord>> page(UUID player, int page, int pageSize) {
+        int offset = page * pageSize;
+        Ring ring = recent.get(player);
+        if (ring != null) {
+            List<ExchangeRecord> fromRing = ring.slice(offset, pageSize);
+            // the ring always holds a player's newest records, so a full slice is exact
+            if (fromRing.size() == pageSize) return CompletableFuture.completedFuture(fromRing);
+        }
+        SqlStorage storage = plugin.getStorage();
+        if (storage != null) return storage.loadHistory(player, offset, pageSize);
+        if (plugin.getJournal() != null) {
+            Positions positions = journaled.get(player);
+            long[] wanted = positions != null ? positions.slice(offset, pageSize) : new long[0];
+            CompletableFuture<List<ExchangeRecord>> f = new CompletableFuture<>();
+            File dir = new File(plugin.getDataFolder(), "journal");
+            plugin.getScheduler().runAsync(() -> {
+                try {
+                    f.complete(readPositions(dir, wanted));
+                } catch (Throwable t) {
+                    f.completeExceptionally(t);
+                }
+            });
+            return f;
+        }
+        return CompletableFuture.completedFuture(ring != null ? ring.slice(offset, pageSize) : Collections.emptyList());
+    }
+
+    // Seek to each record, keeping one file open while consecutive positions share a segment
+    private static List<ExchangeRecord> readPositions(File dir, long[] positions) throws IOException {
+        List<ExchangeRecord> out = new ArrayList<>(positions.length);
+        RandomAccessFile file = null;
+        int openSeq = -1;
+        try {
+            for (long p : positions) {
+                int seq = (int) (p >>> OFFSET_BITS);
+                if (seq != openSeq) {
+                    if (file != null) file.close();
+                    file = new RandomAccessFile(ExchangeJournal.segmentFile(dir, seq), "r");
+                    openSeq = seq;
+                }
+                ExchangeRecord r = JournalReader.readAt(file, p & OFFSET_MASK);
+                if (r != null) out.add(r);
+            }
+        } finally {
+            if (file != null) file.close();
+        }
+        return out;
+    }
+
+    private void journaled(ExchangeRecord r, int segment, long offset) {
+        journaled.computeIfAbsent(r.player, k -> new Positions()).add(position(segment, offset));
+    }
+
+    private static long position(int segment, long offset) {
+        return (long) segment << OFFSET_BITS | offset;
+    }
+
+    /**
+     * Seed per-mob aggregates from storage or the journal, off-thread. Records at or after the enable
+     * time arrive through record() instead.
+     */
+    public void seedAsync() {
+        SqlStorage storage = plugin.getStorage();
+        if (storage != null) {
+            storage.scanAggregates(seedCutoff, this::count, (mob, n) -> stats(mob).consumedAsInput.add(n)).whenComplete((n, t) -> {
+                if (t != null) plugin.getLogger().warning("[RSX] Could not seed history index from storage: " + t);
+            });
+            // Only touched on the storage worker until the scan completes
+            Map<UUID, Ring> olderRecent = new HashMap<>();
+            storage.scanRecent(seedCutoff, ringCapacity, r -> olderRecent.computeIfAbsent(r.player, k -> new Ring(ringCapacity)).add(r))
+                    .whenComplete((n, t) -> {
+                        if (t != null) plugin.getLogger().warning("[RSX] Could not seed recent history from storage: " + t);
+                        else mergeSeeded(olderRecent, Collections.emptyMap());
+                    });
+            return;
+        }
+        ExchangeJournal journal = plugin.getJournal();
+        if (journal == null) return;
+        // Records written from now on are indexed as they hit the disk; the scan covers the older ones
+        journal.setPositionListener(this::journaled);
+        File dir = new File(plugin.getDataFolder(), "journal");
+        plugin.getScheduler().runAsync(() -> {
+            Map<UUID, Ring> olderRecent = new HashMap<>();
+            Map<UUID, Positions> olderPositions = new HashMap<>();
+            try {
+                JournalReader.read(dir, (r, segment, offset) -> {
+                    if (r.timestamp >= seedCutoff) return;
+                    count(r);
+                    olderRecent.computeIfAbsent(r.player, k -> new Ring(ringCapacity)).add(r);
+                    olderPositions.computeIfAbsent(r.player, k -> new Positions())
+                            .add(position(ExchangeJournal.segmentSeq(segment), offset));
+                });
+            } catch (Throwable t) {
+                plugin.getLogger().warning("[RSX] Could not seed history index from journal: " + t);
+            }
+            mergeSeeded(olderRecent, olderPositions);
+        });
+    }
+
+    // Live records may already be indexed; the seeded ones go in front of them
+    private void mergeSeeded(Map<UUID, Ring> olderRecent, Map<UUID, Positions> olderPositions) {
+        olderRecent.forEach((player, older) -> recent.merge(player, older, (live, o) -> live.prepend(o)));
+        olderPositions.forEach((player, older) -> journaled.merge(player, older, (live, o) -> live.prepend(o)));
+    }
+
+    /**
+     * Fixed-size ring of the newest records for one player.
+     */
+    private static final class Ring {
+        private final ExchangeRecord[] items;
+        private int head; // next write position
+        private int size;
+
+        Ring(int capacity) {
+            this.items = new ExchangeRecord[capacity];
+        }
+
+        synchronized void add(ExchangeRecord r) {
+            items[head] = r;
+            head = (head + 1) % items.length;
+            if (size < items.length) size++;
+        }
+
+        /** Put older records (oldest first) in front of these, keeping the newest capacity. */
+        synchronized Ring prepend(Ring older) {
+            List<ExchangeRecord> all = older.slice(0, older.size);
+            Collections.reverse(all);
+            List<ExchangeRecord> mine = slice(0, size);
+            Collections.reverse(mine);
+            all.addAll(mine);
+            head = 0;
+            size = 0;
+            Arrays.fill(items, null);
+            for (int i = Math.max(0, all.size() - items.length); i < all.size(); i++) add(all.get(i));
+            return this;
+        }
+
+        /** newest-first slice */
+        synchronized List<ExchangeRecord> slice(int offset, int limit) {
+            List<ExchangeRecord> out = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+            for (int i = offset; i < size && out.size() < limit; i++) {
+                int idx = Math.floorMod(head - 1 - i, items.length);
+                out.add(items[idx]);
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Journal positions of one player's records, oldest first, in a growable primitive array.
+     */
+    private static final class Positions {
+        private long[] items = new long[8];
+        private int size;
+
+        synchronized void add(long p) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = p;
+        }
+
+        /** Put older positions (oldest first) in front of these. */
+        synchronized Positions prepend(Positions older) {
+            long[] merged = new long[Math.max(8, older.size + size)];
+            System.arraycopy(older.items, 0, merged, 0, older.size);
+            System.arraycopy(items, 0, merged, older.size, size);
+            items = merged;
+            size += older.size;
+            return this;
+        }
+
+        /** newest-first slice */
+        synchronized long[] slice(int offset, int limit) {
+            int n = Math.max(0, Math.min(limit, size - offset));
+            long[] out = new long[n];
+            for (int i = 0; i < n; i++) out[i] = items[size - 1 - offset - i];
+            return out;
+        }
+    }
+}
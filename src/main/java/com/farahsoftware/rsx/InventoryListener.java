@@ -8,22 +8,22 @@ import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.ChatColor;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.event.inventory.InventoryCloseEvent;
-import org.bukkit.Bukkit;
 
 public class InventoryListener implements Listener {
     private final RoseStackerXchange plugin;
     private final NamespacedKey guiLockKey;
     private final NamespacedKey mobKey;
+    private final NamespacedKey buttonKey;
 
     public InventoryListener(RoseStackerXchange plugin) {
         this.plugin = plugin;
         this.guiLockKey = new NamespacedKey(plugin, "rsx_gui_locked");
         this.mobKey = new NamespacedKey(plugin, "rsx_mob");
+        this.buttonKey = new NamespacedKey(plugin, "rsx_button");
     }
 
     @EventHandler
@@ -33,6 +33,15 @@ public class InventoryListener implements Listener {
         InventoryView view = e.getView();
         if (view == null) return;
         String title = view.getTitle();
+        boolean selectionGui = GuiManager.SELECTION_TITLE.equals(title)
+                && view.getTopInventory().getHolder() instanceof GuiManager.SelectionHolder;
+        boolean exchangeGui = title != null && title.startsWith(plugin.getConfigManager().getGuiTitle());
+
+        // Drop click spam before any meta reads or ExchangeManager work
+        if ((selectionGui || exchangeGui) && !plugin.getClickLimiter().tryAcquire(p.getUniqueId())) {
+            e.setCancelled(true);
+            return;
+        }
 
         // Protect GUI-generated items (tagged)
         ItemStack current = e.getCurrentItem();
@@ -45,72 +54,67 @@ public class InventoryListener implements Listener {
         }
 
         // Selection GUI handling
-        if (title != null && ChatColor.stripColor(title).startsWith("RSX - Select Spawner")) {
+        if (selectionGui) {
             e.setCancelled(true);
+            GuiManager.SelectionHolder holder = (GuiManager.SelectionHolder) view.getTopInventory().getHolder();
+            int slot = e.getRawSlot();
+            // Page flips rewrite the content slots of the open inventory in place
+            if (slot == GuiManager.PREV_SLOT) {
+                plugin.getGuiManager().showSelectionPage(holder, holder.getPage() - 1);
+                return;
+            }
+            if (slot == GuiManager.NEXT_SLOT) {
+                plugin.getGuiManager().showSelectionPage(holder, holder.getPage() + 1);
+                return;
+            }
             ItemStack clicked = e.getCurrentItem();
-            if (clicked == null) return;
-            if (clicked.getType() == org.bukkit.Material.ARROW && clicked.hasItemMeta()) {
-                String dn = clicked.getItemMeta().getDisplayName();
-                if (dn != null && dn.contains("Previous")) {
-                    int page = extractPageNumber(title);
-                    p.openInventory(plugin.getGuiManager().buildSelectionPage(Math.max(0, page - 1)));
+            if (clicked == null || slot >= view.getTopInventory().getSize()) return;
+            if (clicked.hasItemMeta() && clicked.getItemMeta().getPersistentDataContainer().has(mobKey, PersistentDataType.STRING)) {
+                String mob = clicked.getItemMeta().getPersistentDataContainer().get(mobKey, PersistentDataType.STRING);
+                if (holder.getConvertBlock() != null) {
+                    p.closeInventory();
+                    plugin.getExchangeManager().convertPlaced(p, holder.getConvertBlock(), mob);
                     return;
-                } else if (dn != null && dn.contains("Next")) {
-                    int page = extractPageNumber(title);
-                    p.openInventory(plugin.getGuiManager().buildSelectionPage(page + 1));
+                }
+                if (e.isRightClick()) {
+                    // Right-click collects targets for a multi-target (cart) exchange
+                    ExchangeManager exchange = plugin.getExchangeManager();
+                    p.sendMessage(exchange.cartAdd(p, mob, 1)
+                            ? plugin.getMessages().get(Messages.Key.CART_ADDED, 1, mob)
+                            : plugin.getMessages().get(Messages.Key.CART_FULL, mob));
                     return;
                 }
-            }
-            if (clicked.hasItemMeta() && clicked.getItemMeta().getPersistentDataContainer().has(mobKey, PersistentDataType.STRING)) {
-                String mob = clicked.getItemMeta().getPersistentDataContainer().get(mobKey, PersistentDataType.STRING);
                 plugin.getExchangeManager().startSession(p, mob);
             }
             return;
         }
 
         // Exchange GUI handling
-        if (title != null && title.startsWith(plugin.getConfigManager().getGuiTitle())) {
+        if (exchangeGui) {
             ItemStack clicked = e.getCurrentItem();
             if (clicked == null) {
                 // Schedule UI refresh after the click to reflect inventory changes
-                Bukkit.getScheduler().runTask(plugin, () -> plugin.getExchangeManager().refreshConfirmState(p));
+                plugin.getExchangeManager().requestRefresh(p);
                 return;
             }
-            if (clicked.hasItemMeta() && clicked.getItemMeta().hasDisplayName()) {
-                String dn = clicked.getItemMeta().getDisplayName();
-                String cancel = plugin.getConfigManager().getItemName("items.cancel");
-                String confirmDisabled = plugin.getConfigManager().getItemName("items.confirm-disabled");
-                String confirmEnabled = plugin.getConfigManager().getItemName("items.confirm-enabled");
-                if (dn.equals(confirmEnabled)) {
-                    e.setCancelled(true);
-                    plugin.getExchangeManager().tryComplete(p);
-                    return;
-                }
-                if (dn.equals(cancel)) {
-                    e.setCancelled(true);
-                    plugin.getExchangeManager().cancelSession(p);
-                    p.closeInventory();
-                    p.sendMessage(ChatColor.YELLOW + "Exchange cancelled.");
-                    return;
-                }
+            // Controls carry an rsx_button tag; only our GUI's own slots count
+            String button = e.getRawSlot() < view.getTopInventory().getSize() && clicked.hasItemMeta()
+                    ? clicked.getItemMeta().getPersistentDataContainer().get(buttonKey, PersistentDataType.STRING) : null;
+            if (GuiManager.BUTTON_CONFIRM.equals(button)) {
+                e.setCancelled(true);
+                plugin.getExchangeManager().tryComplete(p);
+                return;
+            }
+            if (GuiManager.BUTTON_CANCEL.equals(button)) {
+                e.setCancelled(true);
+                plugin.getExchangeManager().cancelSession(p);
+                p.closeInventory();
+                p.sendMessage(plugin.getMessages().get(Messages.Key.EXCHANGE_CANCELLED));
+                return;
             }
             // Schedule UI refresh after the click to reflect inventory changes
-            Bukkit.getScheduler().runTask(plugin, () -> plugin.getExchangeManager().refreshConfirmState(p));
-        }
-    }
-
-    private int extractPageNumber(String title) {
-        int s = title.lastIndexOf('(');
-        int e = title.lastIndexOf(')');
-        if (s != -1 && e != -1 && e > s) {
-            String inside = title.substring(s+1, e);
-            if (inside.contains("/")) inside = inside.split("/")[0];
-            try {
-                int n = Integer.parseInt(inside);
-                return Math.max(0, n - 1);
-            } catch (Exception ignored) {}
+            plugin.getExchangeManager().requestRefresh(p);
         }
-        return 0;
     }
 
     @EventHandler
@@ -131,6 +135,10 @@ public class InventoryListener implements Listener {
         if (view == null) return;
         String title = view.getTitle();
         if (title != null && title.startsWith(plugin.getConfigManager().getGuiTitle())) {
+            if (!plugin.getClickLimiter().tryAcquire(p.getUniqueId())) {
+                e.setCancelled(true);
+                return;
+            }
             // Prevent dragging items into locked slots of the top inventory
             Inventory top = view.getTopInventory();
             int topSize = top.getSize();
@@ -144,7 +152,7 @@ public class InventoryListener implements Listener {
                 }
             }
             // Schedule UI refresh after the drag to reflect inventory changes
-            Bukkit.getScheduler().runTask(plugin, () -> plugin.getExchangeManager().refreshConfirmState(p));
+            plugin.getExchangeManager().requestRefresh(p);
         }
     }
 }
@@ -0,0 +1,187 @@
+package com.farahsoftware.rsx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Offline reader for ExchangeJournal files.
+ *
+ * Export to CSV without a running server:
+ *   java -cp RoseStackerXchange.jar com.farahsoftware.rsx.JournalReader plugins/RoseStackerXchange/journal exchanges.csv
+ *
+ * A torn record at the end of the newest file (crash mid-write) ends that file; records failing their
+ * CRC are skipped, and so are files that are not journals of this version (ExchangeJournal moves those
+ * to *.bad on start).
+ */
+public final class JournalReader {
+
+    private JournalReader() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: JournalReader <journal dir or file> <out.csv>");
+            System.exit(1);
+        }
+        File in = new File(args[0]);
+        File out = new File(args[1]);
+        long n = exportCsv(in, out);
+        System.out.println("Exported " + n + " exchanges to " + out);
+    }
+
+    /**
+     * Journal files in a directory in write order, or the file itself.
+     */
+    public static List<File> segments(File dirOrFile) {
+        List<File> out = new ArrayList<>();
+        if (dirOrFile.isFile()) {
+            out.add(dirOrFile);
+            return out;
+        }
+        File[] files = dirOrFile.listFiles((d, name) -> name.startsWith(ExchangeJournal.FILE_PREFIX) && name.endsWith(ExchangeJournal.FILE_SUFFIX));
+        if (files == null) return out;
+        Arrays.sort(files);
+        out.addAll(Arrays.asList(files));
+        return out;
+    }
+
+    /** Receives a record with the segment file it was read from and the offset of its frame there. */
+    public interface FrameSink {
+        void accept(ExchangeRecord record, File segment, long offset);
+    }
+
+    /**
+     * Stream every valid record to the consumer. Returns the number of records read.
+     */
+    public static long read(File dirOrFile, Consumer<ExchangeRecord> sink) throws IOException {
+        return read(dirOrFile, (r, segment, offset) -> sink.accept(r));
+    }
+
+    /**
+     * Stream every valid record with its position, for building an index to readAt().
+     */
+    public static long read(File dirOrFile, FrameSink sink) throws IOException {
+        long count = 0;
+        CRC32 crc = new CRC32();
+        for (File f : segments(dirOrFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 64 * 1024))) {
+                int magic, version;
+                try {
+                    magic = in.readInt();
+                    version = in.readInt();
+                } catch (EOFException e) {
+                    continue;
+                }
+                // One stray or old file must not make the rest of the journal unreadable
+                if (magic != ExchangeJournal.MAGIC || version != ExchangeJournal.FORMAT_VERSION) continue;
+                long pos = ExchangeJournal.headerSize();
+                while (true) {
+                    long frame = pos;
+                    byte[] body;
+                    try {
+                        int len = in.readInt();
+                        // A length outside what writers produce is a torn or corrupt frame
+                        if (len < 4 || len > ExchangeJournal.MAX_RECORD_BYTES) break;
+                        body = new byte[len];
+                        in.readFully(body);
+                        pos += 4 + len;
+                    } catch (EOFException torn) {
+                        break;
+                    }
+                    ExchangeRecord r = check(crc, body);
+                    if (r == null) continue;
+                    sink.accept(r, f, frame);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The record whose frame starts at offset, or null if there is no intact record there.
+     */
+    public static ExchangeRecord readAt(RandomAccessFile file, long offset) throws IOException {
+        if (offset < ExchangeJournal.headerSize() || offset + 4 > file.length()) return null;
+        file.seek(offset);
+        int len = file.readInt();
+        if (len < 4 || len > ExchangeJournal.MAX_RECORD_BYTES || offset + 4 + len > file.length()) return null;
+        byte[] body = new byte[len];
+        file.readFully(body);
+        return check(new CRC32(), body);
+    }
+
+    // Decoded record if the body's trailing CRC matches, else null
+    private static ExchangeRecord check(CRC32 crc, byte[] body) {
+        crc.reset();
+        crc.update(body, 0, body.length - 4);
+        ByteBuffer b = ByteBuffer.wrap(body);
+        if ((int) crc.getValue() != b.getInt(body.length - 4)) return null;
+        return decode(b);
+    }
+
+    private static ExchangeRecord decode(ByteBuffer b) {
+        long timestamp = b.getLong();
+        long txId = b.getLong();
+        UUID player = new UUID(b.getLong(), b.getLong());
+        String target = readString(b);
+        int points = b.getInt();
+        int n = b.getShort() & 0xFFFF;
+        Map<String, Integer> consumed = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            String mob = readString(b);
+            consumed.merge(mob, b.getInt(), Integer::sum);
+        }
+        return new ExchangeRecord(txId, timestamp, player, target, points, consumed);
+    }
+
+    private static String readString(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort() & 0xFFFF];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write all records as CSV: timestamp,tx_id,player,target,points,consumed (consumed as MOB:count;MOB:count).
+     */
+    public static long exportCsv(File dirOrFile, File out) throws IOException {
+        try (Writer w = new BufferedWriter(Files.newBufferedWriter(out.toPath(), StandardCharsets.UTF_8))) {
+            w.write("timestamp,tx_id,player,target,points,consumed\n");
+            IOException[] failure = new IOException[1];
+            long n = read(dirOrFile, r -> {
+                if (failure[0] != null) return;
+                StringBuilder consumed = new StringBuilder();
+                for (Map.Entry<String, Integer> e : r.consumed.entrySet()) {
+                    if (consumed.length() > 0) consumed.append(';');
+                    consumed.append(e.getKey()).append(':').append(e.getValue());
+                }
+                try {
+                    w.write(Instant.ofEpochMilli(r.timestamp) + "," + r.txId + "," + r.player + "," + r.target + ","
+                            + r.points + "," + consumed + "\n");
+                } catch (IOException ex) {
+                    failure[0] = ex;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            return n;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.farahsoftware.rsx;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for tests and single-JVM setups: every transport on the same channel name
+ * shares one subscriber list.
+ */
+public class LocalRateSyncTransport implements RateSyncTransport {
+    private static final Map<String, List<Consumer<String>>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+    private Consumer<String> handler;
+
+    public LocalRateSyncTransport(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void subscribe(Consumer<String> handler, Runnable onSubscribed) {
+        this.handler = handler;
+        CHANNELS.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(handler);
+        onSubscribed.run();
+    }
+
+    @Override
+    public void publish(String message) {
+        List<Consumer<String>> subs = CHANNELS.get(channel);
+        if (subs == null) return;
+        for (Consumer<String> s : subs) s.accept(message);
+    }
+
+    @Override
+    public void close() {
+        List<Consumer<String>> subs = CHANNELS.get(channel);
+        if (subs != null && handler != null) subs.remove(handler);
+    }
+}
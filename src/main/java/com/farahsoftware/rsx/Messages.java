@@ -0,0 +1,151 @@
+package com.farahsoftware.rsx;
+
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Player-facing messages from the messages section of gui.yml, compiled once per reload.
+ *
+ * Colour codes are translated and {placeholders} are resolved to argument indices at compile time,
+ * so sending a message is a single pass over prebuilt literals. Templates without placeholders
+ * return the same String every time.
+ */
+public class Messages {
+
+    public enum Key {
+        EXCHANGE_BUSY("exchange-busy", "&cThe exchange is busy right now, please try again shortly."),
+        EXCHANGE_TIMEOUT("exchange-timeout", "&eYour exchange timed out and your items were returned."),
+        EXCHANGE_CANCELLED("exchange-cancelled", "&eExchange cancelled."),
+        NOT_ENOUGH_POINTS("not-enough-points", "&cNot enough points. Required: {required} — provided: {provided}", "required", "provided"),
+        EXCHANGE_COMPLETE("exchange-complete", "&aExchange completed for {mob}!", "mob"),
+        CONVERT_NO_SPAWNER("convert-no-spawner", "&cLook at a placed spawner to convert it."),
+        CONVERT_UNKNOWN_MOB("convert-unknown-mob", "&c{mob} spawners cannot be exchanged.", "mob"),
+        CONVERT_FAILED("convert-failed", "&cThat spawner could not be converted."),
+        CONVERT_DENIED("convert-denied", "&cYou cannot convert spawners here."),
+        CONVERT_SAME_MOB("convert-same-mob", "&eThat spawner already spawns {mob}.", "mob"),
+        CONVERT_COMPLETE("convert-complete", "&aConverted {amount}x {from} into {count}x {mob}.", "amount", "from", "count", "mob"),
+        MAILBOX_STORED("mailbox-stored", "&eYour inventory is full: {amount} item(s) were put in your RSX mailbox. Use /rsx claim.", "amount"),
+        MAILBOX_CLAIMED("mailbox-claimed", "&aClaimed {amount} item(s) from your RSX mailbox.", "amount"),
+        MAILBOX_WAITING("mailbox-waiting", "&e{amount} item(s) are waiting in your RSX mailbox. Free some space and use /rsx claim.", "amount"),
+        MAILBOX_EMPTY("mailbox-empty", "&7Your RSX mailbox is empty."),
+        WALLET_DEPOSITED("wallet-deposited", "&aDeposited {amount} spawner(s) for {points} points. Balance: {balance}", "amount", "points", "balance"),
+        WALLET_NOTHING("wallet-nothing", "&7You have no exchangeable spawners in your inventory."),
+        WALLET_BALANCE("wallet-balance", "&eYour RSX balance: {balance} points", "balance"),
+        WALLET_BOUGHT("wallet-bought", "&aBought {amount}x {mob} for {points} points. Balance: {balance}", "amount", "mob", "points", "balance"),
+        CART_EMPTY("cart-empty", "&7Your RSX cart is empty. Add targets with /rsx cart add <mob> [amount] or right-click them in /rsx."),
+        CART_ADDED("cart-added", "&aAdded {amount}x {mob} to your RSX cart. Check out with /rsx cart checkout.", "amount", "mob"),
+        CART_FULL("cart-full", "&cYour RSX cart cannot take {mob}.", "mob"),
+        CART_TOO_LARGE("cart-too-large", "&cYour RSX cart is too large for one exchange, remove some targets."),
+        GUI_PREVIOUS_PAGE("gui-previous-page", "&ePrevious Page"),
+        GUI_NEXT_PAGE("gui-next-page", "&eNext Page"),
+        GUI_PAGE("gui-page", "&6Page {page}/{pages}", "page", "pages"),
+        GUI_SELECTION_NAME("gui-selection-name", "&a{mob}", "mob"),
+        GUI_RATE("gui-rate", "&7Rate: {rate}", "rate"),
+        GUI_RATE_REPLACED("gui-rate-replaced", "&7Rate: &m{rate}", "rate"),
+        GUI_TIER_RATE("gui-tier-rate", "&6{tier} rate: {cost}", "tier", "cost"),
+        GUI_CHEAPEST_INPUTS("gui-cheapest-inputs", "&7Cheapest inputs:"),
+        GUI_CHEAPEST_INPUT("gui-cheapest-input", "&f {amount}x {mob}&8 ({give}:{get})", "amount", "mob", "give", "get"),
+        GUI_REQUIRED("gui-required", "&7Required: {required}", "required"),
+        GUI_PROVIDED("gui-provided", "&7Provided: {provided}", "provided"),
+        GUI_CART_LINE("gui-cart-line", "&f {amount}x {mob}&8 ({points})", "amount", "mob", "points");
+
+        final String path;
+        final String def;
+        final String[] placeholders;
+
+        Key(String path, String def, String... placeholders) {
+            this.path = path;
+            this.def = def;
+            this.placeholders = placeholders;
+        }
+    }
+
+    private volatile Template[] templates = compileAll(null);
+
+    public void load(ConfigurationSection section) {
+        templates = compileAll(section);
+    }
+
+    /** Render a message; args are given in the order of the key's placeholders. */
+    public String get(Key key, Object... args) {
+        return templates[key.ordinal()].format(args);
+    }
+
+    private static Template[] compileAll(ConfigurationSection section) {
+        Key[] keys = Key.values();
+        Template[] out = new Template[keys.length];
+        for (Key k : keys) {
+            String raw = section != null ? section.getString(k.path, k.def) : k.def;
+            out[k.ordinal()] = Template.compile(raw, k.placeholders);
+        }
+        return out;
+    }
+
+    /**
+     * Compiled message: literals[0] arg[slots[0]] literals[1] ... arg[slots[n-1]] literals[n].
+     * Unknown {names} are kept as literal text.
+     */
+    static final class Template {
+        private final String[] literals;
+        private final int[] slots;
+        private final String constant;
+        private final int literalLength;
+
+        private Template(String[] literals, int[] slots) {
+            this.literals = literals;
+            this.slots = slots;
+            this.constant = slots.length == 0 ? literals[0] : null;
+            int len = 0;
+            for (String l : literals) len += l.length();
+            this.literalLength = len;
+        }
+
+        static Template compile(String raw, String... names) {
+            String text = ChatColor.translateAlternateColorCodes('&', raw);
+            List<String> literals = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            StringBuilder lit = new StringBuilder();
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                int close = c == '{' ? text.indexOf('}', i + 1) : -1;
+                int index = close > 0 ? indexOf(names, text.substring(i + 1, close)) : -1;
+                if (index < 0) {
+                    lit.append(c);
+                    i++;
+                    continue;
+                }
+                literals.add(lit.toString());
+                lit.setLength(0);
+                slots.add(index);
+                i = close + 1;
+            }
+            literals.add(lit.toString());
+            int[] s = new int[slots.size()];
+            for (int n = 0; n < s.length; n++) s[n] = slots.get(n);
+            return new Template(literals.toArray(new String[0]), s);
+        }
+
+        private static int indexOf(String[] names, String name) {
+            for (int n = 0; n < names.length; n++) {
+                if (names[n].equalsIgnoreCase(name)) return n;
+            }
+            return -1;
+        }
+
+        String format(Object... args) {
+            if (constant != null) return constant;
+            StringBuilder sb = new StringBuilder(literalLength + slots.length * 8);
+            for (int n = 0; n < slots.length; n++) {
+                sb.append(literals[n]);
+                int a = slots[n];
+                sb.append(a < args.length ? args[a] : "");
+            }
+            sb.append(literals[slots.length]);
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.farahsoftware.rsx;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerKickEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+public class PlayerListener implements Listener {
+    private final RoseStackerXchange plugin;
+
+    public PlayerListener(RoseStackerXchange plugin) {
+        this.plugin = plugin;
+    }
+
+    // Kick fires before quit; whichever sees the session first evicts it and returns items
+    // while the player's inventory is still saved with them.
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onKick(PlayerKickEvent e) {
+        plugin.getExchangeManager().evictSession(e.getPlayer(), "kick");
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e) {
+        plugin.getExchangeManager().evictSession(e.getPlayer(), "quit");
+        plugin.getExchangeManager().clearCart(e.getPlayer().getUniqueId());
+        plugin.getClickLimiter().forget(e.getPlayer().getUniqueId());
+        plugin.getRateTiers().invalidate(e.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent e) {
+        plugin.getRateTiers().invalidate(e.getPlayer().getUniqueId());
+        Player p = e.getPlayer();
+        if (plugin.getMailbox().pending(p.getUniqueId()) > 0) {
+            plugin.getScheduler().runForPlayer(p, () -> {
+                if (p.isOnline()) plugin.getMailbox().claimAndNotify(p, false);
+            });
+        }
+    }
+
+    // Sneak-right-click on a placed spawner with the convert tool: pick a target, convert in place.
+    // Runs late so claim/protection plugins that deny the interaction also block the conversion.
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onInteract(PlayerInteractEvent e) {
+        if (e instanceof ExchangeManager.ConvertProbe) return;
+        if (e.getAction() != Action.RIGHT_CLICK_BLOCK || e.getClickedBlock() == null) return;
+        if (e.getClickedBlock().getType() != Material.SPAWNER || !e.getPlayer().isSneaking()) return;
+        if (e.getItem() == null || e.getItem().getType() != plugin.getConfigManager().getConvertTool()) return;
+        if (!plugin.getConfigManager().isConvertEnabled() || !e.getPlayer().hasPermission("rsx.convert")) return;
+        if (e.useInteractedBlock() == Event.Result.DENY) return;
+        e.setCancelled(true);
+        e.getPlayer().openInventory(plugin.getGuiManager().buildSelectionPage(e.getPlayer(), 0, e.getClickedBlock()));
+    }
+
+    // World-scoped tiers may no longer apply
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent e) {
+        plugin.getRateTiers().invalidate(e.getPlayer().getUniqueId());
+    }
+}
@@ -0,0 +1,222 @@
+package com.farahsoftware.rsx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Spawner points wallet: /rsx deposit turns spawners into a balance once, exchanges then debit it
+ * without any item handling.
+ *
+ * - Balances are kept in an open-addressing table of primitive arrays (UUID halves -> long points),
+ *   so lookups and updates allocate nothing.
+ * - Writes are behind: changes only mark the table dirty, a timer snapshots it every
+ *   wallet.flush-interval-seconds and writes wallet.dat off-thread. Disable writes synchronously.
+ *
+ * wallet.dat: int magic, int count, then count x (long msb, long lsb, long balance).
+ */
+public class PointsWallet {
+    private static final int MAGIC = 0x52535857; // "RSXW"
+
+    private final RoseStackerXchange plugin;
+    private final RSXMetrics metrics;
+    private final File file;
+    private final Object ioLock = new Object();
+    private long snapshotSeq;
+    private long writtenSeq;
+
+    private long[] msb;
+    private long[] lsb;
+    private long[] balance;
+    private boolean[] used;
+    private int size;
+    private boolean dirty;
+    private RSXScheduler.Task task;
+
+    public PointsWallet(RoseStackerXchange plugin, RSXMetrics metrics, File file) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.file = file;
+        allocate(64);
+        metrics.gauge("wallet.accounts", this::accounts);
+    }
+
+    public void start(int flushIntervalSeconds) {
+        load();
+        long period = Math.max(1, flushIntervalSeconds) * 20L;
+        task = plugin.getScheduler().runGlobalTimer(this::flush, period, period);
+    }
+
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        long[] snapshot = snapshot();
+        if (snapshot != null) write(snapshot);
+    }
+
+    /* Balance operations */
+
+    public synchronized long balance(UUID player) {
+        int slot = find(player.getMostSignificantBits(), player.getLeastSignificantBits());
+        return slot >= 0 ? balance[slot] : 0;
+    }
+
+    /** Add points and return the new balance. */
+    public synchronized long credit(UUID player, long points) {
+        if (points <= 0) return balance(player);
+        int slot = slotFor(player.getMostSignificantBits(), player.getLeastSignificantBits());
+        long next = balance[slot] + points;
+        // Saturate instead of wrapping into a negative balance
+        balance[slot] = next < 0 ? Long.MAX_VALUE : next;
+        dirty = true;
+        return balance[slot];
+    }
+
+    /** Take points if the balance covers them; returns false and changes nothing otherwise. */
+    public synchronized boolean debit(UUID player, long points) {
+        if (points <= 0) return true;
+        int slot = find(player.getMostSignificantBits(), player.getLeastSignificantBits());
+        if (slot < 0 || balance[slot] < points) return false;
+        balance[slot] -= points;
+        dirty = true;
+        return true;
+    }
+
+    private synchronized long accounts() {
+        return size;
+    }
+
+    /* Table */
+
+    private void allocate(int capacity) {
+        msb = new long[capacity];
+        lsb = new long[capacity];
+        balance = new long[capacity];
+        used = new boolean[capacity];
+        size = 0;
+    }
+
+    private static int hash(long hi, long lo) {
+        long h = (hi ^ lo) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int find(long hi, long lo) {
+        int mask = used.length - 1;
+        for (int i = hash(hi, lo) & mask; used[i]; i = (i + 1) & mask) {
+            if (msb[i] == hi && lsb[i] == lo) return i;
+        }
+        return -1;
+    }
+
+    private int slotFor(long hi, long lo) {
+        int slot = find(hi, lo);
+        if (slot >= 0) return slot;
+        // Keep the load factor at or below one half
+        if ((size + 1) * 2 > used.length) grow();
+        int mask = used.length - 1;
+        int i = hash(hi, lo) & mask;
+        while (used[i]) i = (i + 1) & mask;
+        used[i] = true;
+        msb[i] = hi;
+        lsb[i] = lo;
+        balance[i] = 0;
+        size++;
+        return i;
+    }
+
+    private void grow() {
+        long[] oldMsb = msb, oldLsb = lsb, oldBalance = balance;
+        boolean[] oldUsed = used;
+        allocate(used.length * 2);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (!oldUsed[i]) continue;
+            int slot = slotFor(oldMsb[i], oldLsb[i]);
+            balance[slot] = oldBalance[i];
+        }
+    }
+
+    /* Persistence */
+
+    private void flush() {
+        long[] snapshot = snapshot();
+        if (snapshot == null) return;
+        plugin.getScheduler().runAsync(() -> write(snapshot));
+    }
+
+    /**
+     * Non-zero balances as msb, lsb, balance triples after a leading sequence number,
+     * or null when nothing changed since the last snapshot.
+     */
+    private synchronized long[] snapshot() {
+        if (!dirty) return null;
+        dirty = false;
+        int n = 0;
+        for (int i = 0; i < used.length; i++) if (used[i] && balance[i] != 0) n++;
+        long[] out = new long[1 + n * 3];
+        out[0] = ++snapshotSeq;
+        int o = 1;
+        for (int i = 0; i < used.length; i++) {
+            if (!used[i] || balance[i] == 0) continue;
+            out[o++] = msb[i];
+            out[o++] = lsb[i];
+            out[o++] = balance[i];
+        }
+        return out;
+    }
+
+    private void write(long[] snapshot) {
+        synchronized (ioLock) {
+            // An older snapshot must not overwrite a newer one that was written first
+            if (snapshot[0] <= writtenSeq) return;
+            File tmp = new File(file.getPath() + ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(snapshot.length / 3);
+                    for (int i = 1; i < snapshot.length; i++) out.writeLong(snapshot[i]);
+                }
+                writtenSeq = snapshot[0];
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                metrics.increment("wallet.writes");
+            } catch (IOException ex) {
+                plugin.getLogger().warning("[RSX] Could not save wallet.dat: " + ex.getMessage());
+                synchronized (this) {
+                    dirty = true;
+                }
+            }
+        }
+    }
+
+    private synchronized void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                plugin.getLogger().warning("[RSX] wallet.dat is not a wallet file, starting with empty balances");
+                return;
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                long hi = in.readLong();
+                long lo = in.readLong();
+                long points = in.readLong();
+                if (points <= 0) continue;
+                // slotFor may grow the table, so resolve the slot before indexing
+                int slot = slotFor(hi, lo);
+                balance[slot] = points;
+            }
+        } catch (IOException ex) {
+            plugin.getLogger().warning("[RSX] Could not load wallet.dat: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.farahsoftware.rsx;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Conversion quotes between every pair of mobs, built together with the tier cost tables
+ * (once per rate-table version and tier reload) so the selection GUI and /rsx quote never recompute them.
+ *
+ * - need[tier][to * n + from]: spawners of 'from' that pay for one 'to' at that tier's cost.
+ * - best[tier][to]: the inputs overpaying the least for one 'to' (exact ratios first), then fewest spawners.
+ *
+ * Input value is always the base rate, like in the exchange GUI.
+ */
+public final class QuoteMatrix {
+    /** Inputs listed per target. */
+    static final int BEST = 3;
+
+    private final String[] mobs;
+    private final Map<String, Integer> index;
+    private final int[] rate;
+    private final int[][] cost;
+    private final int[][] need;
+    private final int[][] best;
+
+    private QuoteMatrix(String[] mobs, Map<String, Integer> index, int[] rate, int[][] cost, int[][] need, int[][] best) {
+        this.mobs = mobs;
+        this.index = index;
+        this.rate = rate;
+        this.cost = cost;
+        this.need = need;
+        this.best = best;
+    }
+
+    static QuoteMatrix build(Map<String, Integer> index, int[][] cost) {
+        int n = index.size();
+        String[] mobs = new String[n];
+        for (Map.Entry<String, Integer> e : index.entrySet()) mobs[e.getValue()] = e.getKey();
+        int[] rate = cost[RateTiers.BASE];
+        int[][] need = new int[cost.length][n * n];
+        int[][] best = new int[cost.length * n][];
+        Integer[] order = new Integer[n];
+        long[] rank = new long[n];
+        for (int t = 0; t < cost.length; t++) {
+            int[] row = need[t];
+            for (int to = 0; to < n; to++) {
+                int c = cost[t][to];
+                for (int from = 0; from < n; from++) {
+                    int r = Math.max(1, rate[from]);
+                    int k = (c + r - 1) / r;
+                    row[to * n + from] = k;
+                    // overpaid points first, spawner count second
+                    rank[from] = (((long) k * r - c) << 32) | k;
+                    order[from] = from;
+                }
+                Arrays.sort(order, (a, b) -> Long.compare(rank[a], rank[b]));
+                int[] top = new int[Math.min(BEST, Math.max(0, n - 1))];
+                int filled = 0;
+                for (int i = 0; i < n && filled < top.length; i++) {
+                    if (order[i] != to) top[filled++] = order[i];
+                }
+                best[t * n + to] = top;
+            }
+        }
+        return new QuoteMatrix(mobs, index, rate, cost, need, best);
+    }
+
+    public String mob(int index) { return mobs[index]; }
+
+    public int indexOf(String mob) {
+        Integer i = index.get(mob);
+        return i != null ? i : -1;
+    }
+
+    private int tierRow(int tier) {
+        return tier >= 0 && tier < cost.length ? tier : RateTiers.BASE;
+    }
+
+    /** Base rate (value as an input). */
+    public int rate(int mob) { return rate[mob]; }
+
+    /** What one 'to' costs at the tier. */
+    public int cost(int tier, int to) { return cost[tierRow(tier)][to]; }
+
+    /** Spawners of 'from' needed for one 'to'. */
+    public int need(int tier, int from, int to) {
+        return need[tierRow(tier)][to * mobs.length + from];
+    }
+
+    /** Spawners of 'from' needed for amount of 'to' (exact for amount &gt; 1, not need * amount). */
+    public long need(int tier, int from, int to, int amount) {
+        if (amount == 1) return need(tier, from, to);
+        long points = (long) cost(tier, to) * amount;
+        int r = Math.max(1, rate[from]);
+        return (points + r - 1) / r;
+    }
+
+    /** Cheapest inputs for one 'to', as mob indices. */
+    public int[] cheapest(int tier, int to) {
+        return best[tierRow(tier) * mobs.length + to];
+    }
+
+    /**
+     * Exact exchange ratio as {from, to}: that many 'from' buy exactly that many 'to' with nothing left over.
+     */
+    public int[] ratio(int tier, int from, int to) {
+        int a = cost(tier, to);
+        int b = Math.max(1, rate[from]);
+        int g = gcd(a, b);
+        return new int[] {a / g, b / g};
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return Math.max(1, a);
+    }
+}
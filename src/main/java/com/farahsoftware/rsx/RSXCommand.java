@@ -1,10 +1,22 @@
 package com.farahsoftware.rsx;
 
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.*;
 import org.bukkit.entity.Player;
 import org.bukkit.ChatColor;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
 public class RSXCommand implements CommandExecutor {
+    private static final int HISTORY_PAGE_SIZE = 10;
+    private static final int TOP_SIZE = 10;
 
     private final RoseStackerXchange plugin;
 
@@ -18,7 +30,7 @@ public class RSXCommand implements CommandExecutor {
                 return true;
             }
             Player p = (Player) sender;
-            p.openInventory(plugin.getGuiManager().buildSelectionPage(0));
+            p.openInventory(plugin.getGuiManager().buildSelectionPage(p, 0));
             return true;
         }
 
@@ -27,12 +39,526 @@ public class RSXCommand implements CommandExecutor {
                 sender.sendMessage(ChatColor.RED + "No permission.");
                 return true;
             }
-            plugin.getConfigManager().reload();
+            plugin.reload();
             sender.sendMessage(ChatColor.GREEN + "RSX reloaded.");
             return true;
         }
 
-        sender.sendMessage(ChatColor.RED + "Usage: /rsx exchange | reload");
+        if (args[0].equalsIgnoreCase("stats")) {
+            if (!sender.hasPermission("rsx.admin")) {
+                sender.sendMessage(ChatColor.RED + "No permission.");
+                return true;
+            }
+            sender.sendMessage(ChatColor.GOLD + "RSX stats:");
+            for (java.util.Map.Entry<String, Long> e : plugin.getMetrics().snapshot().entrySet()) {
+                sender.sendMessage(ChatColor.GRAY + " " + e.getKey() + ": " + ChatColor.WHITE + e.getValue());
+            }
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("history")) {
+            handleHistory(sender, args);
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("top")) {
+            if (!sender.hasPermission("rsx.admin")) {
+                sender.sendMessage(ChatColor.RED + "No permission.");
+                return true;
+            }
+            if (args.length < 2) {
+                sender.sendMessage(ChatColor.RED + "Usage: /rsx top <mob>");
+                return true;
+            }
+            handleTop(sender, args[1].toUpperCase(Locale.ROOT));
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("setrate")) {
+            if (!sender.hasPermission("rsx.admin")) {
+                sender.sendMessage(ChatColor.RED + "No permission.");
+                return true;
+            }
+            if (args.length < 3) {
+                sender.sendMessage(ChatColor.RED + "Usage: /rsx setrate <mob> <rate>");
+                return true;
+            }
+            String mob = args[1].toUpperCase(java.util.Locale.ROOT);
+            int rate;
+            try {
+                rate = Integer.parseInt(args[2]);
+            } catch (NumberFormatException ex) {
+                sender.sendMessage(ChatColor.RED + "Rate must be a whole number.");
+                return true;
+            }
+            if (rate < 1) {
+                sender.sendMessage(ChatColor.RED + "Rate must be at least 1.");
+                return true;
+            }
+            plugin.setMobRate(mob, rate);
+            sender.sendMessage(ChatColor.GREEN + "Rate for " + mob + " set to " + rate + ".");
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("importrates")) {
+            if (!sender.hasPermission("rsx.admin")) {
+                sender.sendMessage(ChatColor.RED + "No permission.");
+                return true;
+            }
+            SqlStorage storage = plugin.getStorage();
+            if (storage == null) {
+                sender.sendMessage(ChatColor.RED + "SQL storage is not enabled (storage.type in config.yml).");
+                return true;
+            }
+            plugin.getConfigManager().reload();
+            Map<String, Integer> rates = plugin.getConfigManager().getMobMap();
+            storage.importRates(rates).whenComplete((n, error) -> {
+                if (error != null) {
+                    reply(sender, ChatColor.RED + "Import failed: " + error.getMessage());
+                    return;
+                }
+                // The imported rows are exactly these rates; apply them without reading the database back
+                plugin.getRateTable().putAll(rates);
+                reply(sender, ChatColor.GREEN + "Imported " + n + " rates from config.yml.");
+            });
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("profile")) {
+            if (!sender.hasPermission("rsx.admin")) {
+                sender.sendMessage(ChatColor.RED + "No permission.");
+                return true;
+            }
+            if (args.length < 2) {
+                sender.sendMessage(ChatColor.RED + "Usage: /rsx profile start | stop");
+                return true;
+            }
+            RSXProfiler profiler = plugin.getProfiler();
+            if (args[1].equalsIgnoreCase("start")) {
+                if (profiler.start()) sender.sendMessage(ChatColor.GREEN + "RSX profiling started.");
+                else sender.sendMessage(ChatColor.YELLOW + "RSX profiling is already running.");
+                return true;
+            }
+            if (args[1].equalsIgnoreCase("stop")) {
+                profiler.stop().whenComplete((out, error) -> {
+                    if (error != null) {
+                        reply(sender, ChatColor.RED + "Could not write RSX profile: " + error.getMessage());
+                        plugin.getLogger().warning("[RSX] Profile dump failed: " + error.getMessage());
+                    } else if (out == null) {
+                        reply(sender, ChatColor.YELLOW + "RSX profiling is not running.");
+                    } else {
+                        reply(sender, ChatColor.GREEN + "RSX profile written to " + out.getPath());
+                    }
+                });
+                return true;
+            }
+            sender.sendMessage(ChatColor.RED + "Usage: /rsx profile start | stop");
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("quote")) {
+            handleQuote(sender, args);
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("claim")) {
+            if (!(sender instanceof Player)) {
+                sender.sendMessage("Only players may run this command.");
+                return true;
+            }
+            plugin.getMailbox().claimAndNotify((Player) sender, true);
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("cart")) {
+            handleCart(sender, args);
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("deposit") || args[0].equalsIgnoreCase("balance") || args[0].equalsIgnoreCase("buy")) {
+            handleWallet(sender, args);
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("convert")) {
+            if (!(sender instanceof Player)) {
+                sender.sendMessage("Only players may run this command.");
+                return true;
+            }
+            if (!sender.hasPermission("rsx.convert")) {
+                sender.sendMessage(ChatColor.RED + "No permission.");
+                return true;
+            }
+            if (!plugin.getConfigManager().isConvertEnabled()) {
+                sender.sendMessage(ChatColor.RED + "In-place conversion is disabled (convert.enabled in config.yml).");
+                return true;
+            }
+            if (args.length < 2) {
+                sender.sendMessage(ChatColor.RED + "Usage: /rsx convert <mob>");
+                return true;
+            }
+            Player p = (Player) sender;
+            plugin.getExchangeManager().convertPlaced(p, p.getTargetBlockExact(5), args[1].toUpperCase(Locale.ROOT));
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("station")) {
+            if (!sender.hasPermission("rsx.admin")) {
+                sender.sendMessage(ChatColor.RED + "No permission.");
+                return true;
+            }
+            handleStation(sender, args);
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.RED + "Usage: /rsx exchange | history [player] [page] | top <mob> | reload | stats | setrate <mob> <rate> | importrates | profile <start|stop> | station <create|link|remove|list> | convert <mob> | claim | quote <from> <to> [amount] | deposit | balance | buy <mob> [amount] | cart [add|remove|clear|checkout]");
         return true;
     }
+
+    // Send from the sender's own thread: the player's (Folia entity scheduler) or the console's (global region).
+    // Several lines go out in one task, so they stay together and in order.
+    private void reply(CommandSender sender, String... lines) {
+        if (sender instanceof Player) {
+            Player p = (Player) sender;
+            plugin.getScheduler().runForPlayer(p, () -> p.sendMessage(lines));
+        } else {
+            plugin.getScheduler().runGlobal(() -> sender.sendMessage(lines));
+        }
+    }
+
+    /**
+     * /rsx cart [add &lt;mob&gt; [amount] | remove &lt;mob&gt; | clear | checkout]: collect several targets and
+     * settle them in one exchange session.
+     */
+    private void handleCart(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage("Only players may run this command.");
+            return;
+        }
+        Player p = (Player) sender;
+        ExchangeManager exchange = plugin.getExchangeManager();
+        String sub = args.length > 1 ? args[1].toLowerCase(Locale.ROOT) : "list";
+        if (sub.equals("add")) {
+            if (args.length < 3) {
+                sender.sendMessage(ChatColor.RED + "Usage: /rsx cart add <mob> [amount]");
+                return;
+            }
+            int amount = 1;
+            if (args.length > 3) {
+                try {
+                    amount = Integer.parseInt(args[3]);
+                } catch (NumberFormatException ex) {
+                    amount = 0;
+                }
+                if (amount < 1) {
+                    sender.sendMessage(ChatColor.RED + "Amount must be a whole number of at least 1.");
+                    return;
+                }
+            }
+            String mob = args[2].toUpperCase(Locale.ROOT);
+            if (!plugin.getRateTable().rates().containsKey(mob)) {
+                sender.sendMessage(ChatColor.RED + "Unknown mob: " + mob);
+                return;
+            }
+            p.sendMessage(exchange.cartAdd(p, mob, amount)
+                    ? plugin.getMessages().get(Messages.Key.CART_ADDED, amount, mob)
+                    : plugin.getMessages().get(Messages.Key.CART_FULL, mob));
+            return;
+        }
+        if (sub.equals("remove")) {
+            if (args.length < 3) {
+                sender.sendMessage(ChatColor.RED + "Usage: /rsx cart remove <mob>");
+                return;
+            }
+            String mob = args[2].toUpperCase(Locale.ROOT);
+            sender.sendMessage(exchange.cartRemove(p, mob)
+                    ? ChatColor.GREEN + "Removed " + mob + " from your cart."
+                    : ChatColor.RED + mob + " is not in your cart.");
+            return;
+        }
+        if (sub.equals("clear")) {
+            exchange.clearCart(p.getUniqueId());
+            sender.sendMessage(ChatColor.GREEN + "Cart cleared.");
+            return;
+        }
+        if (sub.equals("checkout")) {
+            exchange.checkoutCart(p);
+            return;
+        }
+        if (!sub.equals("list")) {
+            sender.sendMessage(ChatColor.RED + "Usage: /rsx cart [add <mob> [amount] | remove <mob> | clear | checkout]");
+            return;
+        }
+
+        Map<String, Integer> cart = exchange.getCart(p.getUniqueId());
+        if (cart.isEmpty()) {
+            p.sendMessage(plugin.getMessages().get(Messages.Key.CART_EMPTY));
+            return;
+        }
+        RateTiers tiers = plugin.getRateTiers();
+        int tier = tiers.tierOf(p);
+        long total = 0;
+        sender.sendMessage(ChatColor.GOLD + "RSX cart:");
+        for (Map.Entry<String, Integer> e : cart.entrySet()) {
+            long points = (long) tiers.tables().cost(tier, e.getKey(), 1) * e.getValue();
+            total += points;
+            sender.sendMessage(ChatColor.GRAY + " " + e.getValue() + "x " + ChatColor.WHITE + e.getKey()
+                    + ChatColor.DARK_GRAY + " (" + points + " points)");
+        }
+        sender.sendMessage(ChatColor.GRAY + "Total: " + ChatColor.WHITE + total + ChatColor.GRAY + " points — /rsx cart checkout");
+    }
+
+    /**
+     * /rsx deposit | balance | buy &lt;mob&gt; [amount]: the points wallet, when wallet.enabled is on.
+     */
+    private void handleWallet(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage("Only players may run this command.");
+            return;
+        }
+        Player p = (Player) sender;
+        PointsWallet wallet = plugin.getWallet();
+        if (wallet == null) {
+            sender.sendMessage(ChatColor.RED + "The points wallet is disabled (wallet.enabled in config.yml).");
+            return;
+        }
+        String sub = args[0].toLowerCase(Locale.ROOT);
+        if (sub.equals("deposit")) {
+            plugin.getExchangeManager().depositToWallet(p);
+            return;
+        }
+        if (sub.equals("balance")) {
+            p.sendMessage(plugin.getMessages().get(Messages.Key.WALLET_BALANCE, wallet.balance(p.getUniqueId())));
+            return;
+        }
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /rsx buy <mob> [amount]");
+            return;
+        }
+        int amount = 1;
+        if (args.length > 2) {
+            try {
+                amount = Integer.parseInt(args[2]);
+            } catch (NumberFormatException ex) {
+                amount = 0;
+            }
+            if (amount < 1) {
+                sender.sendMessage(ChatColor.RED + "Amount must be a whole number of at least 1.");
+                return;
+            }
+        }
+        plugin.getExchangeManager().buyFromWallet(p, args[1].toUpperCase(Locale.ROOT), amount);
+    }
+
+    /**
+     * /rsx quote &lt;from&gt; &lt;to&gt; [amount]: how many 'from' spawners buy amount 'to', answered from the
+     * precomputed quote matrix at the sender's tier.
+     */
+    private void handleQuote(CommandSender sender, String[] args) {
+        if (args.length < 3) {
+            sender.sendMessage(ChatColor.RED + "Usage: /rsx quote <from> <to> [amount]");
+            return;
+        }
+        int amount = 1;
+        if (args.length > 3) {
+            try {
+                amount = Integer.parseInt(args[3]);
+            } catch (NumberFormatException ex) {
+                amount = 0;
+            }
+            if (amount < 1) {
+                sender.sendMessage(ChatColor.RED + "Amount must be a whole number of at least 1.");
+                return;
+            }
+        }
+        RateTiers tiers = plugin.getRateTiers();
+        QuoteMatrix quotes = tiers.tables().quotes;
+        String fromMob = args[1].toUpperCase(Locale.ROOT);
+        String toMob = args[2].toUpperCase(Locale.ROOT);
+        int from = quotes.indexOf(fromMob);
+        int to = quotes.indexOf(toMob);
+        if (from < 0 || to < 0) {
+            sender.sendMessage(ChatColor.RED + "Unknown mob: " + (from < 0 ? fromMob : toMob));
+            return;
+        }
+        int tier = sender instanceof Player ? tiers.tierOf((Player) sender) : RateTiers.BASE;
+        long need = quotes.need(tier, from, to, amount);
+        long over = need * quotes.rate(from) - (long) quotes.cost(tier, to) * amount;
+        int[] ratio = quotes.ratio(tier, from, to);
+        sender.sendMessage(ChatColor.GOLD + "Quote: " + ChatColor.WHITE + need + "x " + fromMob + ChatColor.GOLD + " -> "
+                + ChatColor.WHITE + amount + "x " + toMob);
+        sender.sendMessage(ChatColor.GRAY + " Exact ratio " + ratio[0] + ":" + ratio[1]
+                + (over > 0 ? ", " + over + " points over" : ", nothing over"));
+    }
+
+    /**
+     * /rsx station create &lt;mob&gt; | link | remove | list. Create/remove act on the block being looked at;
+     * link binds the station created last to the container being looked at.
+     */
+    private void handleStation(CommandSender sender, String[] args) {
+        StationManager stations = plugin.getStationManager();
+        if (stations == null) {
+            sender.sendMessage(ChatColor.RED + "Exchange stations are disabled (stations.enabled in config.yml).");
+            return;
+        }
+        String sub = args.length > 1 ? args[1].toLowerCase(Locale.ROOT) : "";
+        if (sub.equals("list")) {
+            List<org.bukkit.Location> all = stations.getStations();
+            sender.sendMessage(ChatColor.GOLD + "RSX stations (" + all.size() + "):");
+            for (org.bukkit.Location l : all) {
+                sender.sendMessage(ChatColor.GRAY + " " + (l.getWorld() != null ? l.getWorld().getName() : "?") + " "
+                        + l.getBlockX() + " " + l.getBlockY() + " " + l.getBlockZ());
+            }
+            return;
+        }
+        if (!(sender instanceof Player)) {
+            sender.sendMessage("Only players may run this command.");
+            return;
+        }
+        Player p = (Player) sender;
+        org.bukkit.block.Block block = p.getTargetBlockExact(5);
+        if (sub.equals("create")) {
+            if (args.length < 3) {
+                sender.sendMessage(ChatColor.RED + "Usage: /rsx station create <mob>");
+                return;
+            }
+            String mob = args[2].toUpperCase(Locale.ROOT);
+            if (!plugin.getRateTable().rates().containsKey(mob)) {
+                sender.sendMessage(ChatColor.RED + "Unknown mob: " + mob);
+                return;
+            }
+            if (block == null || !stations.create(block, mob, p.getUniqueId())) {
+                sender.sendMessage(ChatColor.RED + "Look at a " + stations.getBlockType().name() + " to turn it into a station.");
+                return;
+            }
+            sender.sendMessage(ChatColor.GREEN + "Station for " + mob + " created. Look at its output container and run /rsx station link.");
+            return;
+        }
+        if (sub.equals("link")) {
+            org.bukkit.Location station = stations.getPendingLink(p.getUniqueId());
+            if (station == null) {
+                sender.sendMessage(ChatColor.RED + "Create a station first with /rsx station create <mob>.");
+                return;
+            }
+            if (block == null || block.getLocation().equals(station) || block.getWorld() != station.getWorld()
+                    || block.getLocation().distance(station) > StationManager.MAX_LINK_DISTANCE) {
+                sender.sendMessage(ChatColor.RED + "Look at a container within " + StationManager.MAX_LINK_DISTANCE + " blocks of the station.");
+                return;
+            }
+            if (!stations.link(station, block)) {
+                sender.sendMessage(ChatColor.RED + "That block is not a container, or the station is gone.");
+                return;
+            }
+            sender.sendMessage(ChatColor.GREEN + "Station linked. Spawners fed into it now come out here.");
+            return;
+        }
+        if (sub.equals("remove")) {
+            if (block == null || stations.getStationMob(block) == null) {
+                sender.sendMessage(ChatColor.RED + "Look at a station to remove it.");
+                return;
+            }
+            stations.remove(block);
+            sender.sendMessage(ChatColor.GREEN + "Station removed.");
+            return;
+        }
+        sender.sendMessage(ChatColor.RED + "Usage: /rsx station create <mob> | link | remove | list");
+    }
+
+    /**
+     * /rsx history [player] [page]. Own history for everyone, other players for admins.
+     * Pages are served from the in-memory index when possible, otherwise loaded off-thread.
+     */
+    private void handleHistory(CommandSender sender, String[] args) {
+        String targetName = null;
+        int page = 1;
+        if (args.length >= 2) {
+            try {
+                page = Integer.parseInt(args[1]);
+            } catch (NumberFormatException ex) {
+                targetName = args[1];
+                if (args.length >= 3) {
+                    try {
+                        page = Integer.parseInt(args[2]);
+                    } catch (NumberFormatException ignored) {}
+                }
+            }
+        }
+        page = Math.max(1, page);
+        if (targetName == null) {
+            if (!(sender instanceof Player)) {
+                sender.sendMessage(ChatColor.RED + "Usage: /rsx history <player> [page]");
+                return;
+            }
+            showHistory(sender, ((Player) sender).getUniqueId(), sender.getName(), page);
+            return;
+        }
+        if (!sender.hasPermission("rsx.admin")) {
+            sender.sendMessage(ChatColor.RED + "No permission.");
+            return;
+        }
+        Player online = Bukkit.getPlayerExact(targetName);
+        if (online != null) {
+            showHistory(sender, online.getUniqueId(), online.getName(), page);
+            return;
+        }
+        // Offline name lookups may hit the disk or network; resolve off-thread
+        String name = targetName;
+        int p = page;
+        plugin.getScheduler().runAsync(() -> {
+            @SuppressWarnings("deprecation")
+            OfflinePlayer off = Bukkit.getOfflinePlayer(name);
+            if (!off.hasPlayedBefore()) {
+                reply(sender, ChatColor.RED + "Unknown player: " + name);
+                return;
+            }
+            showHistory(sender, off.getUniqueId(), off.getName() != null ? off.getName() : name, p);
+        });
+    }
+
+    private void showHistory(CommandSender sender, UUID id, String name, int page) {
+        plugin.getHistoryIndex().page(id, page - 1, HISTORY_PAGE_SIZE).whenComplete((records, error) -> {
+            if (error != null) {
+                reply(sender, ChatColor.RED + "Could not load history: " + error.getMessage());
+                return;
+            }
+            List<String> lines = new ArrayList<>();
+            lines.add(ChatColor.GOLD + "RSX history for " + name + " (page " + page + "):");
+            if (records.isEmpty()) {
+                lines.add(ChatColor.GRAY + " No exchanges on this page.");
+                reply(sender, lines.toArray(new String[0]));
+                return;
+            }
+            SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+            for (ExchangeRecord r : records) {
+                StringBuilder inputs = new StringBuilder();
+                for (Map.Entry<String, Integer> e : r.consumed.entrySet()) {
+                    if (inputs.length() > 0) inputs.append(", ");
+                    inputs.append(e.getKey()).append(" x").append(e.getValue());
+                }
+                lines.add(ChatColor.GRAY + " " + fmt.format(new Date(r.timestamp)) + " " + ChatColor.GREEN + r.target
+                        + ChatColor.GRAY + " <- " + (inputs.length() > 0 ? inputs : "?") + " (" + r.points + " pts)");
+            }
+            if (records.size() == HISTORY_PAGE_SIZE) {
+                lines.add(ChatColor.GRAY + " More: /rsx history " + name + " " + (page + 1));
+            }
+            reply(sender, lines.toArray(new String[0]));
+        });
+    }
+
+    private void handleTop(CommandSender sender, String mob) {
+        HistoryIndex.MobStats stats = plugin.getHistoryIndex().getMobStats(mob);
+        if (stats == null) {
+            sender.sendMessage(ChatColor.YELLOW + "No exchanges recorded for " + mob + ".");
+            return;
+        }
+        sender.sendMessage(ChatColor.GOLD + "RSX top for " + mob + ": " + ChatColor.WHITE + stats.exchanges.sum() + " exchanges, "
+                + stats.points.sum() + " points, " + stats.consumedAsInput.sum() + " consumed as input");
+        List<Map.Entry<UUID, Long>> top = plugin.getHistoryIndex().top(mob, TOP_SIZE);
+        int rank = 1;
+        for (Map.Entry<UUID, Long> e : top) {
+            String n = Bukkit.getOfflinePlayer(e.getKey()).getName();
+            sender.sendMessage(ChatColor.GRAY + " " + rank++ + ". " + ChatColor.WHITE + (n != null ? n : e.getKey().toString())
+                    + ChatColor.GRAY + " - " + e.getValue());
+        }
+    }
 }
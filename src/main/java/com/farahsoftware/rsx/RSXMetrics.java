@@ -0,0 +1,40 @@
+package com.farahsoftware.rsx;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lightweight named counters and gauges, shown by /rsx stats.
+ * Counters are LongAdders so they can be bumped from any thread without contention.
+ */
+public class RSXMetrics {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    public void increment(String name) { counter(name).increment(); }
+
+    public void add(String name, long delta) { counter(name).add(delta); }
+
+    public void gauge(String name, LongSupplier supplier) { gauges.put(name, supplier); }
+
+    /**
+     * Sorted snapshot of all counters and gauges.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) out.put(e.getKey(), e.getValue().sum());
+        for (Map.Entry<String, LongSupplier> e : gauges.entrySet()) {
+            try {
+                out.put(e.getKey(), e.getValue().getAsLong());
+            } catch (Exception ignored) {}
+        }
+        return out;
+    }
+}
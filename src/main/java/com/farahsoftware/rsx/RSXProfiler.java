@@ -0,0 +1,82 @@
+package com.farahsoftware.rsx;
+
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Starts/stops a JFR recording with the RSX events enabled and dumps it to
+ * plugins/RoseStackerXchange/profiles/ on stop, off the server thread. Backing for /rsx profile start|stop.
+ */
+public class RSXProfiler {
+    private final RoseStackerXchange plugin;
+    private Recording recording;
+
+    public RSXProfiler(RoseStackerXchange plugin) {
+        this.plugin = plugin;
+    }
+
+    public synchronized boolean isRunning() { return recording != null; }
+
+    /**
+     * Start a recording. Returns false if one is already running.
+     */
+    public synchronized boolean start() {
+        if (recording != null) return false;
+        Recording r = new Recording();
+        r.setName("RSX");
+        r.setToDisk(true);
+        for (Class<? extends Event> type : ExchangeEvents.ALL) {
+            r.enable(type).withThreshold(Duration.ZERO);
+        }
+        // CPU samples give the surrounding context for the RSX events
+        r.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(20));
+        r.start();
+        recording = r;
+        return true;
+    }
+
+    /**
+     * Stop the running recording and dump it to the plugin folder on an async thread.
+     * Completes with the written file, or null if nothing was running.
+     */
+    public CompletableFuture<File> stop() {
+        Recording r;
+        synchronized (this) {
+            r = recording;
+            recording = null;
+        }
+        if (r == null) return CompletableFuture.completedFuture(null);
+        CompletableFuture<File> f = new CompletableFuture<>();
+        plugin.getScheduler().runAsync(() -> {
+            try {
+                File dir = new File(plugin.getDataFolder(), "profiles");
+                if (!dir.exists() && !dir.mkdirs()) throw new java.io.IOException("Could not create " + dir);
+                String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+                File out = new File(dir, "rsx-" + stamp + ".jfr");
+                r.stop();
+                r.dump(out.toPath());
+                f.complete(out);
+            } catch (Throwable t) {
+                f.completeExceptionally(t);
+            } finally {
+                r.close();
+            }
+        });
+        return f;
+    }
+
+    /** Discard any running recording without writing it (plugin disable). */
+    public synchronized void shutdown() {
+        if (recording == null) return;
+        try {
+            recording.close();
+        } catch (Exception ignored) {}
+        recording = null;
+    }
+}
@@ -0,0 +1,173 @@
+package com.farahsoftware.rsx;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler abstraction so RSX runs on both Bukkit/Paper and Folia.
+ *
+ * - Per-player GUI work goes to the player's entity scheduler on Folia, the main thread elsewhere.
+ * - Global work (console commands, repeating housekeeping) goes to the global region scheduler on Folia.
+ * - Block work (exchange stations) goes to the region owning the location on Folia.
+ * - Async work goes to the async scheduler on Folia, the Bukkit async pool elsewhere.
+ *
+ * The Folia schedulers are looked up reflectively because we compile against spigot-api.
+ */
+public class RSXScheduler {
+    private final RoseStackerXchange plugin;
+    private final boolean folia;
+
+    private Method entityGetScheduler;
+    private Method entityRun;
+    private Object globalScheduler;
+    private Method globalExecute;
+    private Method globalRunAtFixedRate;
+    private Object regionScheduler;
+    private Method regionExecute;
+    private Object asyncScheduler;
+    private Method asyncRunNow;
+    private Method taskCancel;
+
+    /** Handle for a repeating task regardless of which scheduler created it. */
+    public interface Task {
+        void cancel();
+    }
+
+    public RSXScheduler(RoseStackerXchange plugin) {
+        this.plugin = plugin;
+        this.folia = detectFolia();
+        if (folia) {
+            try {
+                entityGetScheduler = Entity.class.getMethod("getScheduler");
+                Class<?> entitySchedulerClass = entityGetScheduler.getReturnType();
+                entityRun = entitySchedulerClass.getMethod("run", org.bukkit.plugin.Plugin.class, Consumer.class, Runnable.class);
+
+                globalScheduler = Bukkit.class.getMethod("getGlobalRegionScheduler").invoke(null);
+                Class<?> globalClass = Bukkit.class.getMethod("getGlobalRegionScheduler").getReturnType();
+                globalExecute = globalClass.getMethod("execute", org.bukkit.plugin.Plugin.class, Runnable.class);
+                globalRunAtFixedRate = globalClass.getMethod("runAtFixedRate", org.bukkit.plugin.Plugin.class, Consumer.class, long.class, long.class);
+
+                regionScheduler = Bukkit.class.getMethod("getRegionScheduler").invoke(null);
+                Class<?> regionClass = Bukkit.class.getMethod("getRegionScheduler").getReturnType();
+                regionExecute = regionClass.getMethod("execute", org.bukkit.plugin.Plugin.class, Location.class, Runnable.class);
+
+                asyncScheduler = Bukkit.class.getMethod("getAsyncScheduler").invoke(null);
+                Class<?> asyncClass = Bukkit.class.getMethod("getAsyncScheduler").getReturnType();
+                asyncRunNow = asyncClass.getMethod("runNow", org.bukkit.plugin.Plugin.class, Consumer.class);
+
+                taskCancel = Class.forName("io.papermc.paper.threadedregions.scheduler.ScheduledTask").getMethod("cancel");
+            } catch (Throwable t) {
+                throw new IllegalStateException("Folia detected but its scheduler API could not be resolved", t);
+            }
+        }
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    public boolean isFolia() { return folia; }
+
+    /**
+     * Run on the thread that owns the player. Dropped silently if the player has left (Folia retired callback).
+     */
+    public void runForPlayer(Player p, Runnable task) {
+        runForPlayer(p, task, null);
+    }
+
+    /**
+     * Run on the thread that owns the player, or run retired instead if the player is gone before the task
+     * can run (Folia). For work that must not be lost, such as handing out items.
+     */
+    public void runForPlayer(Player p, Runnable task, Runnable retired) {
+        if (!folia) {
+            Bukkit.getScheduler().runTask(plugin, task);
+            return;
+        }
+        try {
+            Object scheduler = entityGetScheduler.invoke(p);
+            Consumer<Object> c = t -> task.run();
+            // null: the player was already removed and neither callback will ever run
+            Object scheduled = entityRun.invoke(scheduler, plugin, c, retired);
+            if (scheduled == null && retired != null) retired.run();
+        } catch (Throwable t) {
+            plugin.getLogger().warning("[RSX] Could not schedule player task: " + t);
+            if (retired != null) retired.run();
+        }
+    }
+
+    /**
+     * Run on the global region (Folia) or the main thread.
+     */
+    public void runGlobal(Runnable task) {
+        if (!folia) {
+            Bukkit.getScheduler().runTask(plugin, task);
+            return;
+        }
+        try {
+            globalExecute.invoke(globalScheduler, plugin, task);
+        } catch (Throwable t) {
+            plugin.getLogger().warning("[RSX] Could not schedule global task: " + t);
+        }
+    }
+
+    /**
+     * Run on the region owning the location (Folia) or the main thread.
+     */
+    public void runAtLocation(Location location, Runnable task) {
+        if (!folia) {
+            Bukkit.getScheduler().runTask(plugin, task);
+            return;
+        }
+        try {
+            regionExecute.invoke(regionScheduler, plugin, location, task);
+        } catch (Throwable t) {
+            plugin.getLogger().warning("[RSX] Could not schedule region task: " + t);
+        }
+    }
+
+    /**
+     * Repeating task on the global region (Folia) or the main thread.
+     */
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        if (!folia) {
+            BukkitTask bt = Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+            return bt::cancel;
+        }
+        try {
+            Consumer<Object> c = t -> task.run();
+            Object st = globalRunAtFixedRate.invoke(globalScheduler, plugin, c, Math.max(1L, delayTicks), Math.max(1L, periodTicks));
+            return () -> {
+                try {
+                    taskCancel.invoke(st);
+                } catch (Throwable ignored) {}
+            };
+        } catch (Throwable t) {
+            throw new IllegalStateException("Could not schedule global timer", t);
+        }
+    }
+
+    public void runAsync(Runnable task) {
+        if (!folia) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+            return;
+        }
+        try {
+            Consumer<Object> c = t -> task.run();
+            asyncRunNow.invoke(asyncScheduler, plugin, c);
+        } catch (Throwable t) {
+            plugin.getLogger().warning("[RSX] Could not schedule async task: " + t);
+        }
+    }
+}
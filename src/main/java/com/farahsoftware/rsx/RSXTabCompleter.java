@@ -10,10 +10,47 @@ public class RSXTabCompleter implements TabCompleter {
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
-            List<String> opts = new ArrayList<>(Arrays.asList("exchange", "reload"));
-            if (!sender.hasPermission("rsx.admin")) return Collections.singletonList("exchange");
+            List<String> opts = new ArrayList<>(Arrays.asList("exchange", "history", "top", "reload", "stats", "setrate", "importrates", "profile", "station", "claim", "quote", "cart"));
+            if (sender.hasPermission("rsx.convert")) opts.add("convert");
+            if (plugin.getWallet() != null) opts.addAll(Arrays.asList("deposit", "balance", "buy"));
+            if (!sender.hasPermission("rsx.admin")) {
+                List<String> basic = new ArrayList<>(Arrays.asList("exchange", "history", "claim", "quote", "cart"));
+                if (sender.hasPermission("rsx.convert")) basic.add("convert");
+                if (plugin.getWallet() != null) basic.addAll(Arrays.asList("deposit", "balance", "buy"));
+                return filter(basic, args[0]);
+            }
             return filter(opts, args[0]);
         }
+        if (args.length == 2 && (args[0].equalsIgnoreCase("setrate") || args[0].equalsIgnoreCase("top")) && sender.hasPermission("rsx.admin")) {
+            return filter(new ArrayList<>(plugin.getRateTable().rates().keySet()), args[1]);
+        }
+        if ((args.length == 2 || args.length == 3) && args[0].equalsIgnoreCase("quote")) {
+            return filter(new ArrayList<>(plugin.getRateTable().rates().keySet()), args[args.length - 1]);
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("cart")) {
+            return filter(new ArrayList<>(Arrays.asList("add", "remove", "clear", "checkout")), args[1]);
+        }
+        if (args.length == 3 && args[0].equalsIgnoreCase("cart") && args[1].equalsIgnoreCase("add")) {
+            return filter(new ArrayList<>(plugin.getRateTable().rates().keySet()), args[2]);
+        }
+        if (args.length == 3 && args[0].equalsIgnoreCase("cart") && args[1].equalsIgnoreCase("remove") && sender instanceof org.bukkit.entity.Player) {
+            return filter(new ArrayList<>(plugin.getExchangeManager().getCart(((org.bukkit.entity.Player) sender).getUniqueId()).keySet()), args[2]);
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("buy") && plugin.getWallet() != null) {
+            return filter(new ArrayList<>(plugin.getRateTable().rates().keySet()), args[1]);
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("convert") && sender.hasPermission("rsx.convert")) {
+            return filter(new ArrayList<>(plugin.getRateTable().rates().keySet()), args[1]);
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("profile") && sender.hasPermission("rsx.admin")) {
+            return filter(new ArrayList<>(Arrays.asList("start", "stop")), args[1]);
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("station") && sender.hasPermission("rsx.admin")) {
+            return filter(new ArrayList<>(Arrays.asList("create", "link", "remove", "list")), args[1]);
+        }
+        if (args.length == 3 && args[0].equalsIgnoreCase("station") && args[1].equalsIgnoreCase("create") && sender.hasPermission("rsx.admin")) {
+            return filter(new ArrayList<>(plugin.getRateTable().rates().keySet()), args[2]);
+        }
         return Collections.emptyList();
     }
 
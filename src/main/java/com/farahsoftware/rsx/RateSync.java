@@ -0,0 +1,175 @@
+package com.farahsoftware.rsx;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the rate table in step across servers.
+ *
+ * Every local edit is stamped with a Lamport clock and published as a delta over the configured
+ * transport; peers apply entries that are newer (clock, then node id as tie-break) than what they hold
+ * for that mob, as one atomic RateTable swap on the transport thread. Once the transport confirms the
+ * subscription (and after every reconnect) a node asks its peers for their versioned entries, so a
+ * restarted server catches up without anyone re-editing.
+ *
+ * Wire format (text, newline separated):
+ *   RSX1 <DELTA|FULL|REQ> <senderNode> <senderClock>
+ *   <MOB> <rate> <clock> <originNode>      (one line per entry)
+ */
+public class RateSync {
+    private static final String HEADER = "RSX1";
+
+    private static final class Version {
+        final long clock;
+        final String node;
+        Version(long clock, String node) {
+            this.clock = clock;
+            this.node = node;
+        }
+        boolean newerThan(Version o) {
+            if (o == null) return true;
+            if (clock != o.clock) return clock > o.clock;
+            return node.compareTo(o.node) > 0;
+        }
+    }
+
+    private final RoseStackerXchange plugin;
+    private final RSXMetrics metrics;
+    private final RateSyncTransport transport;
+    private final RateTable rateTable;
+    private final String nodeId;
+    private final Consumer<Map<String, Integer>> persister;
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "RSX-RateSync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param persister called once per applied message with all accepted entries, to write them to the
+     *                  local backing store; must not block the transport thread
+     */
+    public RateSync(RoseStackerXchange plugin, RSXMetrics metrics, RateSyncTransport transport, RateTable rateTable,
+                    String nodeId, Consumer<Map<String, Integer>> persister) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.transport = transport;
+        this.rateTable = rateTable;
+        this.nodeId = nodeId.replaceAll("\\s+", "_");
+        this.persister = persister;
+    }
+
+    public String getNodeId() { return nodeId; }
+
+    public void start() throws Exception {
+        // Ask only once the subscription is live, or the peers' FULL replies arrive before we listen
+        transport.subscribe(this::onMessage, () -> {
+            metrics.increment("sync.requests");
+            send("REQ", new LinkedHashMap<>());
+        });
+    }
+
+    public void shutdown() {
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(3, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        transport.close();
+    }
+
+    /**
+     * Publish local edits (already applied to the local RateTable). Never blocks the caller.
+     */
+    public void publishLocal(Map<String, Integer> changes) {
+        long c = clock.incrementAndGet();
+        Map<String, String> entries = new LinkedHashMap<>();
+        // Same lock as onMessage, so a remote entry cannot interleave between its version check and put
+        synchronized (this) {
+            for (Map.Entry<String, Integer> e : changes.entrySet()) {
+                String mob = e.getKey().toUpperCase(Locale.ROOT);
+                versions.put(mob, new Version(c, nodeId));
+                entries.put(mob, e.getValue() + " " + c + " " + nodeId);
+            }
+        }
+        send("DELTA", entries);
+    }
+
+    private void send(String type, Map<String, String> entries) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(HEADER).append(' ').append(type).append(' ').append(nodeId).append(' ').append(clock.get());
+        for (Map.Entry<String, String> e : entries.entrySet()) sb.append('\n').append(e.getKey()).append(' ').append(e.getValue());
+        String msg = sb.toString();
+        publisher.execute(() -> {
+            try {
+                transport.publish(msg);
+                metrics.increment("sync.published");
+            } catch (Exception ex) {
+                metrics.increment("sync.errors");
+                plugin.getLogger().warning("[RSX] Rate sync publish failed: " + ex.getMessage());
+            }
+        });
+    }
+
+    private void onMessage(String msg) {
+        try {
+            String[] lines = msg.split("\n");
+            String[] head = lines[0].trim().split(" ");
+            if (head.length < 4 || !HEADER.equals(head[0])) return;
+            String type = head[1];
+            String sender = head[2];
+            if (sender.equals(nodeId)) return;
+            long senderClock = Long.parseLong(head[3]);
+            clock.accumulateAndGet(senderClock, Math::max);
+
+            if (type.equals("REQ")) {
+                answerRequest();
+                return;
+            }
+            Map<String, Integer> accepted = new LinkedHashMap<>();
+            synchronized (this) {
+                for (int i = 1; i < lines.length; i++) {
+                    String[] f = lines[i].trim().split(" ");
+                    if (f.length < 4) continue;
+                    String mob = f[0].toUpperCase(Locale.ROOT);
+                    Version v = new Version(Long.parseLong(f[2]), f[3]);
+                    clock.accumulateAndGet(v.clock, Math::max);
+                    if (!v.newerThan(versions.get(mob))) continue;
+                    versions.put(mob, v);
+                    accepted.put(mob, Integer.parseInt(f[1]));
+                }
+                if (!accepted.isEmpty()) rateTable.putAll(accepted);
+            }
+            metrics.increment("sync.received");
+            if (accepted.isEmpty()) return;
+            metrics.add("sync.applied", accepted.size());
+            persister.accept(accepted);
+        } catch (RuntimeException ex) {
+            metrics.increment("sync.errors");
+            plugin.getLogger().warning("[RSX] Ignoring malformed rate sync message: " + ex.getMessage());
+        }
+    }
+
+    // Share every entry we hold a version for, so the requesting node converges
+    private void answerRequest() {
+        if (versions.isEmpty()) return;
+        Map<String, Integer> rates = rateTable.rates();
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, Version> e : versions.entrySet()) {
+            Integer rate = rates.get(e.getKey());
+            if (rate == null) continue;
+            entries.put(e.getKey(), rate + " " + e.getValue().clock + " " + e.getValue().node);
+        }
+        if (!entries.isEmpty()) send("FULL", entries);
+    }
+}
@@ -0,0 +1,22 @@
+package com.farahsoftware.rsx;
+
+import java.util.function.Consumer;
+
+/**
+ * Pluggable pub/sub channel used by RateSync. Implementations deliver every published message to all
+ * subscribers (including the publisher; RateSync drops its own messages).
+ */
+public interface RateSyncTransport {
+
+    /**
+     * Start delivering messages to the handler, on a transport-owned thread. onSubscribed runs once the
+     * subscription is live (messages published from then on reach the handler), and again after every
+     * reconnect of transports that can lose it.
+     */
+    void subscribe(Consumer<String> handler, Runnable onSubscribed) throws Exception;
+
+    /** Publish a message. May block on I/O; RateSync calls it from its own worker thread. */
+    void publish(String message) throws Exception;
+
+    void close();
+}
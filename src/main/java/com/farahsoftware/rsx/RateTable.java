@@ -0,0 +1,100 @@
+package com.farahsoftware.rsx;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-memory, read-through cache of mob rates used on every hot path (refresh, confirm, selection GUI).
+ *
+ * Readers get an immutable, versioned snapshot with a single volatile read. The snapshot is loaded
+ * lazily from the backing source (config.yml 'mobs' section or SQL storage) and replaced wholesale on
+ * reload or edit; listeners are told about every new snapshot.
+ */
+public class RateTable {
+
+    public static final class Snapshot {
+        public final int version;
+        /** mobKey (upper case) -> rate, sorted case-insensitively; unmodifiable */
+        public final Map<String, Integer> rates;
+
+        Snapshot(int version, Map<String, Integer> rates) {
+            this.version = version;
+            this.rates = rates;
+        }
+    }
+
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+    private volatile Supplier<Map<String, Integer>> loader;
+    private volatile Snapshot snapshot;
+    private int versionSeq;
+
+    public RateTable(Supplier<Map<String, Integer>> loader) {
+        this.loader = loader;
+    }
+
+    /** Switch the backing source; takes effect on the next reload(). */
+    public void setLoader(Supplier<Map<String, Integer>> loader) {
+        this.loader = loader;
+    }
+
+    public Snapshot snapshot() {
+        Snapshot s = snapshot;
+        if (s != null) return s;
+        synchronized (this) {
+            if (snapshot == null) publish(loader.get());
+            return snapshot;
+        }
+    }
+
+    public Map<String, Integer> rates() { return snapshot().rates; }
+
+    public int rate(String mobKey, int def) {
+        Integer r = snapshot().rates.get(mobKey);
+        return r != null ? r : def;
+    }
+
+    public int version() { return snapshot().version; }
+
+    /** Re-read the backing source and publish it. */
+    public synchronized void reload() {
+        publish(loader.get());
+    }
+
+    /** Update one rate (copy-on-write) and publish. */
+    public synchronized void put(String mobKey, int rate) {
+        Map<String, Integer> next = new LinkedHashMap<>(snapshot().rates);
+        next.put(mobKey.toUpperCase(Locale.ROOT), Math.max(1, rate));
+        publish(next);
+    }
+
+    /** Update several rates as one copy-on-write swap, so readers never see half a delta. */
+    public synchronized void putAll(Map<String, Integer> rates) {
+        Map<String, Integer> next = new LinkedHashMap<>(snapshot().rates);
+        for (Map.Entry<String, Integer> e : rates.entrySet()) next.put(e.getKey().toUpperCase(Locale.ROOT), Math.max(1, e.getValue()));
+        publish(next);
+    }
+
+    /** Replace the whole table and publish. */
+    public synchronized void replaceAll(Map<String, Integer> rates) {
+        publish(rates);
+    }
+
+    public void addListener(Consumer<Snapshot> listener) {
+        listeners.add(listener);
+    }
+
+    private void publish(Map<String, Integer> rates) {
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        rates.keySet().stream().sorted(String.CASE_INSENSITIVE_ORDER)
+                .forEach(k -> sorted.put(k.toUpperCase(Locale.ROOT), Math.max(1, rates.get(k))));
+        Snapshot s = new Snapshot(++versionSeq, Collections.unmodifiableMap(sorted));
+        snapshot = s;
+        for (Consumer<Snapshot> l : listeners) l.accept(s);
+    }
+}
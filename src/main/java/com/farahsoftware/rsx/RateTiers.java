@@ -0,0 +1,168 @@
+package com.farahsoftware.rsx;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Permission/world tiers that discount what a target spawner costs (config.yml 'tiers').
+ *
+ * Cost tables are precomputed for every tier whenever the rate table or the tier config changes:
+ * one int[] per tier indexed by mob position. A player's tier is resolved once (highest priority tier
+ * whose permission they hold and whose worlds include theirs), cached, and invalidated on world change,
+ * join/quit, permission recalculation and reload; a session keeps the tier it started with.
+ */
+public class RateTiers {
+    public static final int BASE = 0;
+
+    static final class Tier {
+        final String name;
+        final String permission;
+        final int priority;
+        final double multiplier;
+        final Map<String, Integer> overrides;
+        final Set<String> worlds;
+
+        Tier(String name, String permission, int priority, double multiplier, Map<String, Integer> overrides, Set<String> worlds) {
+            this.name = name;
+            this.permission = permission;
+            this.priority = priority;
+            this.multiplier = multiplier;
+            this.overrides = overrides;
+            this.worlds = worlds;
+        }
+    }
+
+    /** Immutable precomputed costs; cost[0] is the base table, cost[i] is tier i-1. Quotes are derived from them. */
+    public static final class Tables {
+        public final int rateVersion;
+        final Map<String, Integer> mobIndex;
+        final int[][] cost;
+        public final QuoteMatrix quotes;
+
+        Tables(int rateVersion, Map<String, Integer> mobIndex, int[][] cost) {
+            this.rateVersion = rateVersion;
+            this.mobIndex = mobIndex;
+            this.cost = cost;
+            this.quotes = QuoteMatrix.build(mobIndex, cost);
+        }
+
+        public int cost(int tier, String mob, int def) {
+            Integer idx = mobIndex.get(mob);
+            if (idx == null) return def;
+            int[] row = tier >= 0 && tier < cost.length ? cost[tier] : cost[BASE];
+            return row[idx];
+        }
+    }
+
+    private final RSXMetrics metrics;
+    private final Map<UUID, Integer> tierOf = new ConcurrentHashMap<>();
+    private volatile List<Tier> tiers = Collections.emptyList();
+    private volatile Tables tables = new Tables(0, Collections.emptyMap(), new int[][] {new int[0]});
+
+    public RateTiers(RSXMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Parse the 'tiers' section. Call rebuild() afterwards.
+     */
+    public void load(ConfigurationSection section) {
+        List<Tier> out = new ArrayList<>();
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection t = section.getConfigurationSection(name);
+                if (t == null) continue;
+                Map<String, Integer> overrides = new HashMap<>();
+                ConfigurationSection rates = t.getConfigurationSection("rates");
+                if (rates != null) {
+                    for (String mob : rates.getKeys(false)) overrides.put(mob.toUpperCase(Locale.ROOT), Math.max(1, rates.getInt(mob, 1)));
+                }
+                Set<String> worlds = new HashSet<>();
+                for (String w : t.getStringList("worlds")) worlds.add(w.toLowerCase(Locale.ROOT));
+                out.add(new Tier(name, t.getString("permission", "rsx.tier." + name), t.getInt("priority", 0),
+                        Math.max(0.0, t.getDouble("multiplier", 1.0)), overrides, worlds));
+            }
+        }
+        out.sort((a, b) -> Integer.compare(b.priority, a.priority));
+        tiers = Collections.unmodifiableList(out);
+        tierOf.clear();
+    }
+
+    /**
+     * Precompute cost rows for every tier from a rate snapshot (RateTable listener).
+     */
+    public void rebuild(RateTable.Snapshot snapshot) {
+        List<Tier> ts = tiers;
+        Map<String, Integer> index = new HashMap<>();
+        int[] base = new int[snapshot.rates.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : snapshot.rates.entrySet()) {
+            index.put(e.getKey(), i);
+            base[i++] = e.getValue();
+        }
+        int[][] cost = new int[ts.size() + 1][];
+        cost[BASE] = base;
+        for (int t = 0; t < ts.size(); t++) {
+            Tier tier = ts.get(t);
+            int[] row = new int[base.length];
+            for (Map.Entry<String, Integer> e : index.entrySet()) {
+                Integer override = tier.overrides.get(e.getKey());
+                int b = base[e.getValue()];
+                row[e.getValue()] = override != null ? override : Math.max(1, (int) Math.ceil(b * tier.multiplier));
+            }
+            cost[t + 1] = row;
+        }
+        tables = new Tables(snapshot.version, Collections.unmodifiableMap(index), cost);
+        metrics.increment("tiers.rebuilds");
+    }
+
+    public Tables tables() { return tables; }
+
+    /**
+     * Cached tier index for the player (BASE when no tier applies).
+     */
+    public int tierOf(Player p) {
+        Integer cached = tierOf.get(p.getUniqueId());
+        if (cached != null) return cached;
+        metrics.increment("tiers.resolves");
+        int resolved = resolve(p);
+        tierOf.put(p.getUniqueId(), resolved);
+        return resolved;
+    }
+
+    private int resolve(Player p) {
+        List<Tier> ts = tiers;
+        String world = p.getWorld().getName().toLowerCase(Locale.ROOT);
+        for (int t = 0; t < ts.size(); t++) {
+            Tier tier = ts.get(t);
+            if (!tier.worlds.isEmpty() && !tier.worlds.contains(world)) continue;
+            if (tier.permission != null && !tier.permission.isEmpty() && !p.hasPermission(tier.permission)) continue;
+            return t + 1;
+        }
+        return BASE;
+    }
+
+    public String tierName(int tier) {
+        List<Tier> ts = tiers;
+        return tier > 0 && tier <= ts.size() ? ts.get(tier - 1).name : null;
+    }
+
+    public void invalidate(UUID player) {
+        tierOf.remove(player);
+    }
+
+    public void invalidateAll() {
+        tierOf.clear();
+    }
+}
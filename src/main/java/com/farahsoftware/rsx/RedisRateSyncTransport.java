@@ -0,0 +1,203 @@
+package com.farahsoftware.rsx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Redis pub/sub transport speaking plain RESP over sockets, so no client library has to be shaded.
+ *
+ * One connection stays in SUBSCRIBE mode on a daemon thread (reconnecting with backoff); a second,
+ * lazily opened connection is used for PUBLISH. onSubscribed fires on each subscribe confirmation,
+ * so a node that reconnects asks its peers again for what it missed.
+ */
+public class RedisRateSyncTransport implements RateSyncTransport {
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final Logger logger;
+    private final String host;
+    private final int port;
+    private final String password;
+    private final String channel;
+    private volatile boolean running;
+    private volatile Socket subSocket;
+    private Thread subscriber;
+    private Socket pubSocket;
+    private InputStream pubIn;
+    private OutputStream pubOut;
+
+    public RedisRateSyncTransport(Logger logger, String host, int port, String password, String channel) {
+        this.logger = logger;
+        this.host = host;
+        this.port = port;
+        this.password = password == null || password.isEmpty() ? null : password;
+        this.channel = channel;
+    }
+
+    @Override
+    public void subscribe(Consumer<String> handler, Runnable onSubscribed) {
+        running = true;
+        subscriber = new Thread(() -> subscribeLoop(handler, onSubscribed), "RSX-RateSync-Redis");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    private void subscribeLoop(Consumer<String> handler, Runnable onSubscribed) {
+        long backoff = 1000;
+        while (running) {
+            try (Socket s = connect()) {
+                subSocket = s;
+                InputStream in = new BufferedInputStream(s.getInputStream());
+                OutputStream out = new BufferedOutputStream(s.getOutputStream());
+                s.setSoTimeout(0);
+                auth(in, out);
+                write(out, "SUBSCRIBE", channel);
+                backoff = 1000;
+                while (running) {
+                    Object reply = read(in);
+                    if (!(reply instanceof List)) continue;
+                    List<?> parts = (List<?>) reply;
+                    if (parts.size() != 3) continue;
+                    if ("message".equals(parts.get(0)) && parts.get(2) instanceof String) {
+                        handler.accept((String) parts.get(2));
+                    } else if ("subscribe".equals(parts.get(0))) {
+                        // Redis only routes messages to us from this reply on; anything asked for earlier is lost
+                        onSubscribed.run();
+                    }
+                }
+            } catch (IOException e) {
+                if (!running) return;
+                logger.warning("[RSX] Redis rate sync subscription lost (" + e.getMessage() + "), retrying in " + backoff / 1000 + "s");
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(30000, backoff * 2);
+        }
+    }
+
+    @Override
+    public synchronized void publish(String message) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (pubSocket == null || pubSocket.isClosed()) {
+                    pubSocket = connect();
+                    pubIn = new BufferedInputStream(pubSocket.getInputStream());
+                    pubOut = new BufferedOutputStream(pubSocket.getOutputStream());
+                    auth(pubIn, pubOut);
+                }
+                write(pubOut, "PUBLISH", channel, message);
+                read(pubIn);
+                return;
+            } catch (IOException e) {
+                closeQuietly(pubSocket);
+                pubSocket = null;
+                if (attempt >= 1) throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(subSocket);
+        synchronized (this) {
+            closeQuietly(pubSocket);
+            pubSocket = null;
+        }
+        if (subscriber != null) subscriber.interrupt();
+    }
+
+    private Socket connect() throws IOException {
+        Socket s = new Socket();
+        s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        s.setSoTimeout(CONNECT_TIMEOUT_MS);
+        s.setKeepAlive(true);
+        return s;
+    }
+
+    private void auth(InputStream in, OutputStream out) throws IOException {
+        if (password == null) return;
+        write(out, "AUTH", password);
+        read(in);
+    }
+
+    /* RESP encoding */
+
+    private static void write(OutputStream out, String... args) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append('*').append(args.length).append("\r\n");
+        out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+        for (String a : args) {
+            byte[] b = a.getBytes(StandardCharsets.UTF_8);
+            out.write(("$" + b.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(b);
+            out.write('\r');
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private static Object read(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) throw new EOFException("Redis connection closed");
+        String line = readLine(in);
+        switch (type) {
+            case '+':
+                return line;
+            case '-':
+                throw new IOException("Redis error: " + line);
+            case ':':
+                return Long.parseLong(line);
+            case '$': {
+                int len = Integer.parseInt(line);
+                if (len < 0) return null;
+                byte[] b = in.readNBytes(len);
+                if (b.length < len) throw new EOFException("Redis connection closed");
+                readLine(in);
+                return new String(b, StandardCharsets.UTF_8);
+            }
+            case '*': {
+                int n = Integer.parseInt(line);
+                if (n < 0) return null;
+                List<Object> out = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) out.add(read(in));
+                return out;
+            }
+            default:
+                throw new IOException("Unexpected Redis reply type: " + (char) type);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\r') {
+                in.read(); // '\n'
+                return sb.toString();
+            }
+            sb.append((char) c);
+        }
+        throw new EOFException("Redis connection closed");
+    }
+
+    private static void closeQuietly(Socket s) {
+        if (s == null) return;
+        try {
+            s.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -11,6 +11,21 @@ public class RoseStackerXchange extends JavaPlugin {
     private SpawnerManager spawnerManager;
     private GuiManager guiManager;
     private ExchangeManager exchangeManager;
+    private RSXProfiler profiler;
+    private RSXScheduler scheduler;
+    private RSXMetrics metrics;
+    private TickBudgetExecutor budgetExecutor;
+    private ClickRateLimiter clickLimiter;
+    private ExchangeJournal journal;
+    private RateTable rateTable;
+    private SqlStorage storage;
+    private HistoryIndex historyIndex;
+    private RateSync rateSync;
+    private RateTiers rateTiers;
+    private Messages messages;
+    private StationManager stationManager;
+    private DeliveryMailbox mailbox;
+    private PointsWallet wallet;
 
     private RoseStackerAPI rsApi;
 
@@ -42,31 +57,208 @@ public class RoseStackerXchange extends JavaPlugin {
         }
 
         // Init managers
+        this.scheduler = new RSXScheduler(this);
         this.configManager = new ConfigManager(this);
+        this.messages = new Messages();
+        messages.load(configManager.getMessagesSection());
+        this.metrics = new RSXMetrics();
+        this.mailbox = new DeliveryMailbox(this, metrics, new java.io.File(getDataFolder(), "mailbox.yml"));
+        mailbox.load();
+        this.rateTable = new RateTable(configManager::getMobMap);
+        metrics.gauge("rates.version", () -> rateTable.version());
+        this.rateTiers = new RateTiers(metrics);
+        rateTiers.load(configManager.getTiersSection());
+        rateTable.addListener(rateTiers::rebuild);
+        this.budgetExecutor = new TickBudgetExecutor(this, metrics, configManager.getTickBudgetMicros());
+        this.clickLimiter = new ClickRateLimiter(metrics, configManager.isClickLimitEnabled(),
+                configManager.getClickLimitBurst(), configManager.getClickLimitRefillPerSecond());
         this.spawnerManager = new SpawnerManager(this, rsApi);
         this.guiManager = new GuiManager(this);
         this.exchangeManager = new ExchangeManager(this, spawnerManager, configManager);
+        this.profiler = new RSXProfiler(this);
+        if (configManager.isJournalEnabled()) startJournal();
+        if (configManager.getStorageType().equals("sqlite")) startStorage();
+        if (configManager.isSyncEnabled()) startRateSync();
+        if (configManager.isStationsEnabled()) startStations();
+        if (configManager.isWalletEnabled()) {
+            this.wallet = new PointsWallet(this, metrics, new java.io.File(getDataFolder(), "wallet.dat"));
+            wallet.start(configManager.getWalletFlushIntervalSeconds());
+        }
+        this.historyIndex = new HistoryIndex(this, metrics, configManager.getHistoryRecentPerPlayer());
+        exchangeManager.addCompletionListener(historyIndex::record);
+        historyIndex.seedAsync();
+        budgetExecutor.start();
 
         // Commands & listeners
         getCommand("rsx").setExecutor(new RSXCommand(this));
         getCommand("rsx").setTabCompleter(new RSXTabCompleter(this));
         getServer().getPluginManager().registerEvents(new InventoryListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
+        hookPermissionRecalculation();
 
         // Populate mobs in config from RoseStacker
         try {
             spawnerManager.populateMobsInConfig();
+            if (storage == null) rateTable.reload();
         } catch (Exception ex) {
             getLogger().warning("[RSX] populateMobsInConfig() failed: " + ex.getMessage());
         }
 
-        getLogger().info("RoseStackerXchange enabled (RoseStacker API OK)");
+        getLogger().info("RoseStackerXchange enabled (RoseStacker API OK" + (scheduler.isFolia() ? ", Folia scheduler" : "") + ")");
     }
 
     @Override
     public void onDisable() {
+        if (exchangeManager != null) exchangeManager.shutdown();
+        if (stationManager != null) stationManager.shutdown();
+        if (mailbox != null) mailbox.shutdown();
+        if (wallet != null) wallet.shutdown();
+        if (budgetExecutor != null) budgetExecutor.shutdown();
+        if (journal != null) journal.shutdown();
+        if (rateSync != null) rateSync.shutdown();
+        if (storage != null) storage.shutdown();
+        if (profiler != null) profiler.shutdown();
         getLogger().info("RoseStackerXchange disabled");
     }
 
+    private void startJournal() {
+        ExchangeJournal j = new ExchangeJournal(this, metrics, new java.io.File(getDataFolder(), "journal"),
+                configManager.getJournalMaxFileMb(), configManager.getJournalFlushIntervalMs());
+        try {
+            j.start();
+        } catch (java.io.IOException ex) {
+            getLogger().warning("[RSX] Could not open exchange journal: " + ex.getMessage());
+            return;
+        }
+        this.journal = j;
+        exchangeManager.addCompletionListener(j::append);
+    }
+
+    private void startStations() {
+        StationManager s = new StationManager(this, metrics, new java.io.File(getDataFolder(), "stations.yml"),
+                configManager.getStationBlock(), configManager.getStationMaxItemsPerTick());
+        s.start(configManager.getStationIntervalTicks());
+        this.stationManager = s;
+        getServer().getPluginManager().registerEvents(new StationListener(s), this);
+    }
+
+    private void startStorage() {
+        SqlStorage s = new SqlStorage(this, metrics, new java.io.File(getDataFolder(), configManager.getStorageFile()),
+                configManager.getStorageFlushIntervalMs());
+        try {
+            s.start();
+            if (s.countRates() == 0) {
+                int n = s.importRates(configManager.getMobMap()).get();
+                getLogger().info("[RSX] Imported " + n + " mob rates from config.yml into storage");
+            }
+        } catch (Exception ex) {
+            getLogger().warning("[RSX] Could not open SQL storage, falling back to config.yml rates: " + ex);
+            s.shutdown();
+            return;
+        }
+        this.storage = s;
+        rateTable.setLoader(s::loadRates);
+        rateTable.reload();
+        exchangeManager.addCompletionListener(s::appendExchange);
+    }
+
+    private void startRateSync() {
+        RateSyncTransport transport;
+        String channel = configManager.getSyncChannel();
+        switch (configManager.getSyncTransport()) {
+            case "file":
+                java.io.File f = new java.io.File(configManager.getSyncFile());
+                if (!f.isAbsolute()) f = new java.io.File(getDataFolder(), configManager.getSyncFile());
+                transport = new FileRateSyncTransport(f, configManager.getSyncFilePollMs());
+                break;
+            case "local":
+                transport = new LocalRateSyncTransport(channel);
+                break;
+            default:
+                transport = new RedisRateSyncTransport(getLogger(), configManager.getSyncRedisHost(), configManager.getSyncRedisPort(),
+                        configManager.getSyncRedisPassword(), channel);
+        }
+        String node = configManager.getSyncNodeId();
+        if (node == null || node.isBlank()) node = java.util.UUID.randomUUID().toString().substring(0, 8);
+        RateSync sync = new RateSync(this, metrics, transport, rateTable, node,
+                this::persistRemoteRates);
+        try {
+            sync.start();
+        } catch (Exception ex) {
+            getLogger().warning("[RSX] Could not start rate sync: " + ex);
+            transport.close();
+            return;
+        }
+        this.rateSync = sync;
+        getLogger().info("[RSX] Rate sync enabled (" + configManager.getSyncTransport() + ", node " + sync.getNodeId() + ")");
+    }
+
+    /**
+     * Bukkit has no permission-change event; when LuckPerms is present, drop a player's cached tier
+     * whenever their permission data is recalculated. Wired reflectively so LuckPerms stays optional.
+     */
+    private void hookPermissionRecalculation() {
+        if (!Bukkit.getPluginManager().isPluginEnabled("LuckPerms")) return;
+        try {
+            Class<?> lpClass = Class.forName("net.luckperms.api.LuckPerms");
+            Object lp = Class.forName("net.luckperms.api.LuckPermsProvider").getMethod("get").invoke(null);
+            Object bus = lpClass.getMethod("getEventBus").invoke(lp);
+            Class<?> busClass = Class.forName("net.luckperms.api.event.EventBus");
+            Class<?> eventClass = Class.forName("net.luckperms.api.event.user.UserDataRecalculateEvent");
+            java.lang.reflect.Method getUser = eventClass.getMethod("getUser");
+            java.lang.reflect.Method getUniqueId = Class.forName("net.luckperms.api.model.user.User").getMethod("getUniqueId");
+            java.util.function.Consumer<Object> handler = event -> {
+                try {
+                    rateTiers.invalidate((java.util.UUID) getUniqueId.invoke(getUser.invoke(event)));
+                } catch (ReflectiveOperationException ignored) {}
+            };
+            busClass.getMethod("subscribe", Object.class, Class.class, java.util.function.Consumer.class).invoke(bus, this, eventClass, handler);
+            getLogger().info("[RSX] Hooked LuckPerms permission recalculation for rate tiers");
+        } catch (Throwable t) {
+            getLogger().warning("[RSX] Could not hook LuckPerms events, tiers refresh on join/world change only: " + t);
+        }
+    }
+
+    /**
+     * Change a mob rate: the in-memory table is updated at once, persistence happens off-thread
+     * with storage and through config.yml without, and other servers are told when sync is on.
+     */
+    public void setMobRate(String mobKey, int rate) {
+        rateTable.put(mobKey, rate);
+        persistMobRate(mobKey, rate);
+        if (rateSync != null) rateSync.publishLocal(java.util.Collections.singletonMap(mobKey, rate));
+    }
+
+    // One batch per applied sync message: storage writes are queued on its worker; without storage
+    // config.yml is updated on the global region and written once, off-thread
+    private void persistRemoteRates(java.util.Map<String, Integer> rates) {
+        if (storage != null) {
+            for (java.util.Map.Entry<String, Integer> e : rates.entrySet()) storage.saveRate(e.getKey(), e.getValue());
+            return;
+        }
+        scheduler.runGlobal(() -> configManager.setMobRates(rates, scheduler));
+    }
+
+    private void persistMobRate(String mobKey, int rate) {
+        if (storage != null) storage.saveRate(mobKey, rate);
+        else configManager.setMobRate(mobKey, rate);
+    }
+
+    /**
+     * Reload config/gui files and push the new values into running components.
+     */
+    public void reload() {
+        configManager.reload();
+        messages.load(configManager.getMessagesSection());
+        rateTiers.load(configManager.getTiersSection());
+        rateTable.reload();
+        budgetExecutor.setBudgetMicros(configManager.getTickBudgetMicros());
+        clickLimiter.configure(configManager.isClickLimitEnabled(),
+                configManager.getClickLimitBurst(), configManager.getClickLimitRefillPerSecond());
+        exchangeManager.getSessionStore().configure(configManager.getMaxConcurrentSessions(), configManager.getSessionIdleTtlSeconds());
+        if (stationManager != null) stationManager.setMaxItemsPerPass(configManager.getStationMaxItemsPerTick());
+    }
+
     public static RoseStackerXchange get() { return instance; }
 
     public ConfigManager getConfigManager() { return configManager; }
@@ -74,4 +266,20 @@ public class RoseStackerXchange extends JavaPlugin {
     public GuiManager getGuiManager() { return guiManager; }
     public ExchangeManager getExchangeManager() { return exchangeManager; }
     public RoseStackerAPI getRsApi() { return rsApi; }
+    public RSXProfiler getProfiler() { return profiler; }
+    public RSXMetrics getMetrics() { return metrics; }
+    public RSXScheduler getScheduler() { return scheduler; }
+    public TickBudgetExecutor getBudgetExecutor() { return budgetExecutor; }
+    public ClickRateLimiter getClickLimiter() { return clickLimiter; }
+    public ExchangeJournal getJournal() { return journal; }
+    public RateTable getRateTable() { return rateTable; }
+    public SqlStorage getStorage() { return storage; }
+    public HistoryIndex getHistoryIndex() { return historyIndex; }
+    public RateSync getRateSync() { return rateSync; }
+    public RateTiers getRateTiers() { return rateTiers; }
+    public Messages getMessages() { return messages; }
+    public StationManager getStationManager() { return stationManager; }
+    public DeliveryMailbox getMailbox() { return mailbox; }
+    /** Null unless wallet.enabled. */
+    public PointsWallet getWallet() { return wallet; }
 }
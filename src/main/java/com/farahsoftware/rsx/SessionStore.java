@@ -0,0 +1,111 @@
+package com.farahsoftware.rsx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the live exchange sessions.
+ *
+ * - Lock-free map keyed by player UUID (safe from Folia region threads).
+ * - Optional cap on concurrent sessions (sessions.max-concurrent, 0 = unlimited), enforced by reserving
+ *   a slot on an atomic count before the session is stored, so racing opens cannot overshoot it.
+ * - At most one session per player: an open never replaces a live session (its items would be lost).
+ * - Idle TTL (sessions.idle-ttl-seconds); ExchangeManager sweeps expired entries.
+ * - Size and eviction counts are published through RSXMetrics.
+ */
+public class SessionStore {
+    private final RSXMetrics metrics;
+    private final Map<UUID, ExchangeManager.Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile int maxConcurrent;
+    private volatile long idleTtlMillis;
+
+    public SessionStore(RSXMetrics metrics, int maxConcurrent, int idleTtlSeconds) {
+        this.metrics = metrics;
+        configure(maxConcurrent, idleTtlSeconds);
+        metrics.gauge("sessions.active", sessions::size);
+    }
+
+    public void configure(int maxConcurrent, int idleTtlSeconds) {
+        this.maxConcurrent = Math.max(0, maxConcurrent);
+        this.idleTtlMillis = Math.max(0, idleTtlSeconds) * 1000L;
+    }
+
+    /**
+     * Register a session. Returns false (and stores nothing) if the concurrency cap is reached or the
+     * player already has a session; close that one first.
+     */
+    public boolean open(UUID id, ExchangeManager.Session session) {
+        int cap = maxConcurrent;
+        while (true) {
+            int n = count.get();
+            if (cap > 0 && n >= cap) {
+                metrics.increment("sessions.rejected-cap");
+                return false;
+            }
+            if (count.compareAndSet(n, n + 1)) break;
+        }
+        if (sessions.putIfAbsent(id, session) != null) {
+            count.decrementAndGet();
+            metrics.increment("sessions.rejected-duplicate");
+            return false;
+        }
+        metrics.increment("sessions.opened");
+        return true;
+    }
+
+    public ExchangeManager.Session get(UUID id) {
+        return sessions.get(id);
+    }
+
+    public ExchangeManager.Session remove(UUID id) {
+        ExchangeManager.Session s = sessions.remove(id);
+        if (s != null) count.decrementAndGet();
+        return s;
+    }
+
+    /**
+     * Remove only if the mapping still points to this exact session (guards against
+     * evicting a newer session that replaced an expired one).
+     */
+    public boolean remove(UUID id, ExchangeManager.Session session) {
+        if (!sessions.remove(id, session)) return false;
+        count.decrementAndGet();
+        return true;
+    }
+
+    /** Remove a session and count it under sessions.evicted-&lt;reason&gt;. */
+    public ExchangeManager.Session evict(UUID id, String reason) {
+        ExchangeManager.Session s = remove(id);
+        if (s != null) metrics.increment("sessions.evicted-" + reason);
+        return s;
+    }
+
+    public int size() { return sessions.size(); }
+
+    /**
+     * Snapshot of players whose sessions have been idle longer than the TTL.
+     */
+    public List<UUID> findExpired(long now) {
+        long ttl = idleTtlMillis;
+        List<UUID> out = new ArrayList<>();
+        if (ttl <= 0) return out;
+        for (Map.Entry<UUID, ExchangeManager.Session> e : sessions.entrySet()) {
+            if (now - e.getValue().lastActivity > ttl) out.add(e.getKey());
+        }
+        return out;
+    }
+
+    public boolean isExpired(ExchangeManager.Session s, long now) {
+        long ttl = idleTtlMillis;
+        return ttl > 0 && now - s.lastActivity > ttl;
+    }
+
+    public List<UUID> ids() {
+        return new ArrayList<>(sessions.keySet());
+    }
+}
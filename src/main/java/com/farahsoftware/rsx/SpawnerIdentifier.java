@@ -0,0 +1,215 @@
+package com.farahsoftware.rsx;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.CreatureSpawner;
+import org.bukkit.entity.EntityType;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Identifies spawner items: which mob they spawn and how many spawners they stand for.
+ *
+ * Order of sources:
+ * 1) Mob: the spawned type stored in the item's spawner block state, then RoseStacker's item data.
+ *    Stack size: RoseStacker's item data times the item amount.
+ * 2) Only when those have nothing to say: the display name / lore heuristics, counted in
+ *    identify.fallback-* so /rsx stats shows how often items are not tagged properly.
+ *
+ * A tagged spawner is never matched by name, so renamed items keep their real type and an
+ * unconfigured type is not picked up through a name that happens to contain another mob.
+ * RoseStacker methods are looked up once, not per item.
+ */
+public class SpawnerIdentifier {
+    private static final Pattern NAME_PREFIX = Pattern.compile("^\\s*(\\d+)\\s*(?:x|X|×)\\s+.*");
+    private static final Pattern NAME_SUFFIX = Pattern.compile(".*(?:x|X|×)\\s*(\\d+)\\s*$");
+    // Only lore lines that read like a stack size, not any number (e.g. spawn delays, ranges)
+    private static final Pattern LORE_STACK = Pattern.compile("(?i).*\\b(?:stack(?:\\s*size)?|amount)\\b\\s*:?\\s*(?:x|×)?\\s*(\\d+).*");
+
+    private final RoseStackerXchange plugin;
+    private final Object rsApi;
+    private final LongAdder typeState;
+    private final LongAdder typeRoseStacker;
+    private final LongAdder typeName;
+    private final LongAdder sizeRoseStacker;
+    private final LongAdder sizeName;
+    private final LongAdder sizeLore;
+
+    // Resolved lazily: RoseStacker's ItemStack -> EntityType and ItemStack -> stack size readers, if present
+    private volatile boolean resolved;
+    private Method typeReader;
+    private Object typeTarget;
+    private Method sizeReader;
+    private Object sizeTarget;
+
+    public SpawnerIdentifier(RoseStackerXchange plugin, RSXMetrics metrics, Object rsApi) {
+        this.plugin = plugin;
+        this.rsApi = rsApi;
+        this.typeState = metrics.counter("identify.type-state");
+        this.typeRoseStacker = metrics.counter("identify.type-rosestacker");
+        this.typeName = metrics.counter("identify.fallback-name");
+        this.sizeRoseStacker = metrics.counter("identify.size-rosestacker");
+        this.sizeName = metrics.counter("identify.fallback-size-name");
+        this.sizeLore = metrics.counter("identify.fallback-size-lore");
+    }
+
+    /** Mob key of a spawner item if it is one of mobKeys, else null. */
+    public String mob(ItemStack it, Set<String> mobKeys) {
+        if (it == null || it.getType() != Material.SPAWNER) return null;
+        ItemMeta meta = it.getItemMeta();
+        if (meta == null) return null;
+
+        EntityType type = stateType(meta);
+        if (type != null) {
+            typeState.increment();
+            return mobKeys.contains(type.name()) ? type.name() : null;
+        }
+        type = roseStackerType(it);
+        if (type != null) {
+            typeRoseStacker.increment();
+            return mobKeys.contains(type.name()) ? type.name() : null;
+        }
+
+        if (!meta.hasDisplayName()) return null;
+        typeName.increment();
+        String dn = meta.getDisplayName().toUpperCase(Locale.ROOT);
+        for (String mob : mobKeys) {
+            if (dn.contains(mob)) return mob;
+        }
+        return null;
+    }
+
+    /**
+     * Spawners the item stands for. Records the source on evt
+     * (rosestacker-api, display-name-regex, lore-regex or amount).
+     */
+    public int stackCount(ItemStack it, ExchangeEvents.StackCount evt) {
+        String source = "amount";
+        int count = it.getAmount();
+        int size = roseStackerSize(it);
+        if (size > 0) {
+            source = "rosestacker-api";
+            count = multiply(size, it.getAmount());
+            sizeRoseStacker.increment();
+        } else if (size < 0 && it.getType() == Material.SPAWNER) {
+            // RoseStacker not readable; size 0 means it has no stack data: a plain spawner, one per item
+            ItemMeta meta = it.getItemMeta();
+            int byName = meta != null && meta.hasDisplayName() ? nameCount(ChatColor.stripColor(meta.getDisplayName())) : -1;
+            int byLore = byName <= 0 && meta != null && meta.hasLore() ? loreCount(meta.getLore()) : -1;
+            if (byName > 0) {
+                source = "display-name-regex";
+                count = byName;
+                sizeName.increment();
+            } else if (byLore > 0) {
+                source = "lore-regex";
+                count = byLore;
+                sizeLore.increment();
+            }
+        }
+        // Set once the count is known, so an event never reports a source that did not produce it
+        evt.source = source;
+        return count;
+    }
+
+    private static int nameCount(String name) {
+        int val = firstGroup(NAME_PREFIX.matcher(name));
+        return val > 0 ? val : firstGroup(NAME_SUFFIX.matcher(name));
+    }
+
+    private static int loreCount(List<String> lore) {
+        for (String line : lore) {
+            int val = firstGroup(LORE_STACK.matcher(ChatColor.stripColor(line)));
+            if (val > 0) return val;
+        }
+        return -1;
+    }
+
+    private static EntityType stateType(ItemMeta meta) {
+        if (!(meta instanceof BlockStateMeta)) return null;
+        BlockStateMeta bsm = (BlockStateMeta) meta;
+        // Without a stored state Bukkit returns a default spawner, which says nothing about the item
+        if (!bsm.hasBlockState()) return null;
+        BlockState state = bsm.getBlockState();
+        return state instanceof CreatureSpawner ? ((CreatureSpawner) state).getSpawnedType() : null;
+    }
+
+    private EntityType roseStackerType(ItemStack it) {
+        resolve();
+        if (typeReader == null) return null;
+        try {
+            Object type = typeReader.invoke(typeTarget, it);
+            return type instanceof EntityType ? (EntityType) type : null;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * RoseStacker's stack size for the item: &gt; 0 if it has one, 0 if RoseStacker reports none,
+     * -1 if RoseStacker cannot be asked.
+     */
+    private int roseStackerSize(ItemStack it) {
+        resolve();
+        if (sizeReader == null) return -1;
+        try {
+            Object n = sizeReader.invoke(sizeTarget, it);
+            if (!(n instanceof Number)) return 0;
+            int v = ((Number) n).intValue();
+            // Plain items report 1; let the item amount count those
+            return v > 1 ? v : 0;
+        } catch (Throwable t) {
+            return -1;
+        }
+    }
+
+    private void resolve() {
+        if (resolved) return;
+        synchronized (this) {
+            if (resolved) return;
+            try {
+                Class<?> utils = Class.forName("dev.rosewood.rosestacker.utils.ItemUtils");
+                try {
+                    typeReader = utils.getMethod("getStackedItemEntityType", ItemStack.class);
+                } catch (NoSuchMethodException ignored) {}
+                try {
+                    sizeReader = utils.getMethod("getStackedItemStackAmount", ItemStack.class);
+                } catch (NoSuchMethodException ignored) {}
+            } catch (Throwable ignored) {}
+            if (sizeReader == null && rsApi != null) {
+                // Older API versions expose the stacked item lookup on the API object
+                try {
+                    sizeReader = rsApi.getClass().getMethod("getStackedItemStackAmount", ItemStack.class);
+                    sizeTarget = rsApi;
+                } catch (Throwable ignored) {}
+            }
+            if (sizeReader == null) {
+                plugin.getLogger().info("[RSX] RoseStacker item stack size not readable; using item names and amounts.");
+            }
+            resolved = true;
+        }
+    }
+
+    private static int firstGroup(Matcher m) {
+        if (!m.matches()) return -1;
+        try {
+            return Integer.parseInt(m.group(1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static int multiply(int size, int amount) {
+        long n = (long) size * Math.max(1, amount);
+        return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+    }
+}
@@ -1,6 +1,8 @@
 package com.farahsoftware.rsx;
 
 import dev.rosewood.rosestacker.api.RoseStackerAPI;
+import dev.rosewood.rosestacker.stack.StackedSpawner;
+import dev.rosewood.rosestacker.stack.settings.SpawnerStackSettings;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
@@ -24,6 +26,11 @@ public class SpawnerManager {
     private final RoseStackerXchange plugin;
     private final RoseStackerAPI rsApi;
 
+    // Resolved lazily: RoseStacker's stacked spawner item factory (EntityType, int) -> ItemStack, if present
+    private java.lang.reflect.Method stackedItemFactory;
+    private Object stackedItemTarget;
+    private boolean stackedItemFactoryResolved;
+
     public SpawnerManager(RoseStackerXchange plugin, RoseStackerAPI rsApi) {
         this.plugin = plugin;
         this.rsApi = rsApi;
@@ -129,6 +136,155 @@ public class SpawnerManager {
         return false;
     }
 
+    /**
+     * Build spawner items for mobKey without a player (e.g. exchange station output).
+     * Uses RoseStacker's stacked spawner item when its factory is available (one item holding the whole
+     * amount), otherwise plain spawner items with the spawned type set, split into 64-stacks.
+     */
+    public List<ItemStack> createSpawnerItems(String mobKey, int amount) {
+        List<ItemStack> out = new ArrayList<>();
+        if (mobKey == null || amount <= 0) return out;
+        org.bukkit.entity.EntityType type = null;
+        try {
+            type = org.bukkit.entity.EntityType.valueOf(mobKey.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ignored) {}
+
+        if (type != null) {
+            resolveStackedItemFactory();
+            if (stackedItemFactory != null) {
+                try {
+                    Object item = stackedItemFactory.invoke(stackedItemTarget, type, amount);
+                    if (item instanceof ItemStack) {
+                        out.add((ItemStack) item);
+                        return out;
+                    }
+                } catch (Throwable t) {
+                    plugin.getLogger().warning("[RSX] RoseStacker spawner item factory failed: " + t);
+                }
+            }
+        }
+
+        ItemStack template = new ItemStack(org.bukkit.Material.SPAWNER);
+        org.bukkit.inventory.meta.ItemMeta meta = template.getItemMeta();
+        if (meta != null) {
+            if (type != null && meta instanceof org.bukkit.inventory.meta.BlockStateMeta) {
+                org.bukkit.inventory.meta.BlockStateMeta bsm = (org.bukkit.inventory.meta.BlockStateMeta) meta;
+                if (bsm.getBlockState() instanceof org.bukkit.block.CreatureSpawner) {
+                    org.bukkit.block.CreatureSpawner cs = (org.bukkit.block.CreatureSpawner) bsm.getBlockState();
+                    cs.setSpawnedType(type);
+                    bsm.setBlockState(cs);
+                }
+            }
+            meta.setDisplayName(mobKey + " Spawner");
+            template.setItemMeta(meta);
+        }
+        int max = template.getMaxStackSize();
+        for (int left = amount; left > 0; left -= max) {
+            ItemStack stack = template.clone();
+            stack.setAmount(Math.min(max, left));
+            out.add(stack);
+        }
+        return out;
+    }
+
+    private synchronized void resolveStackedItemFactory() {
+        if (stackedItemFactoryResolved) return;
+        stackedItemFactoryResolved = true;
+        // API first, then RoseStacker's own item utility; the name differs between versions
+        String[] apiNames = new String[] {"getStackedSpawnerItem", "getSpawnerItem"};
+        for (String name : apiNames) {
+            try {
+                stackedItemFactory = rsApi.getClass().getMethod(name, org.bukkit.entity.EntityType.class, int.class);
+                stackedItemTarget = rsApi;
+                return;
+            } catch (Throwable ignored) {}
+        }
+        try {
+            Class<?> utils = Class.forName("dev.rosewood.rosestacker.utils.ItemUtils");
+            stackedItemFactory = utils.getMethod("getSpawnerAsStackedItemStack", org.bukkit.entity.EntityType.class, int.class);
+            stackedItemTarget = null;
+        } catch (Throwable ignored) {
+            plugin.getLogger().info("[RSX] RoseStacker spawner item factory not found; station output uses plain spawners.");
+        }
+    }
+
+    /** A placed spawner as RoseStacker sees it; stack is the RoseStacker StackedSpawner (null if untracked). */
+    public static final class PlacedSpawner {
+        public final String mobKey;
+        public final int stackSize;
+        final StackedSpawner stack;
+
+        PlacedSpawner(String mobKey, int stackSize, StackedSpawner stack) {
+            this.mobKey = mobKey;
+            this.stackSize = stackSize;
+            this.stack = stack;
+        }
+    }
+
+    /**
+     * Read type and stack size of a placed spawner. Type comes from the block's spawner state, the stack
+     * size from RoseStacker's StackedSpawner.
+     */
+    public PlacedSpawner getPlacedSpawner(org.bukkit.block.Block block) {
+        if (block == null || block.getType() != org.bukkit.Material.SPAWNER) return null;
+        org.bukkit.block.BlockState state = block.getState();
+        if (!(state instanceof org.bukkit.block.CreatureSpawner)) return null;
+        org.bukkit.entity.EntityType type = ((org.bukkit.block.CreatureSpawner) state).getSpawnedType();
+        if (type == null) return null;
+        StackedSpawner stack = rsApi.getStackedSpawner(block);
+        int size = stack != null ? Math.max(1, stack.getStackSize()) : 1;
+        return new PlacedSpawner(type.name(), size, stack);
+    }
+
+    /**
+     * Largest stack RoseStacker allows for a placed spawner of mobKey (spawner settings of that type),
+     * or Integer.MAX_VALUE if RoseStacker has no settings for it.
+     */
+    public int getMaxPlacedStackSize(String mobKey) {
+        org.bukkit.entity.EntityType type;
+        try {
+            type = org.bukkit.entity.EntityType.valueOf(mobKey.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return Integer.MAX_VALUE;
+        }
+        SpawnerStackSettings settings = rsApi.getSpawnerStackSettings(type);
+        return settings != null ? Math.max(1, settings.getMaxStackSize()) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Change a placed spawner's type and stack size in place. The type is set on the block's spawner state;
+     * RoseStacker's stack is resized and refreshed. Returns false if nothing could be changed.
+     */
+    public boolean setPlacedSpawner(org.bukkit.block.Block block, PlacedSpawner placed, String mobKey, int size) {
+        org.bukkit.entity.EntityType type;
+        try {
+            type = org.bukkit.entity.EntityType.valueOf(mobKey.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        if (size > 1 && placed.stack == null) return false;
+        org.bukkit.block.BlockState state = block.getState();
+        if (!(state instanceof org.bukkit.block.CreatureSpawner)) return false;
+        org.bukkit.block.CreatureSpawner cs = (org.bukkit.block.CreatureSpawner) state;
+        cs.setSpawnedType(type);
+        cs.update(true, false);
+        if (placed.stack == null) return true;
+        try {
+            placed.stack.setStackSize(size);
+            placed.stack.updateSpawnerProperties(true);
+            placed.stack.updateDisplay();
+            return true;
+        } catch (RuntimeException t) {
+            plugin.getLogger().warning("[RSX] Could not resize RoseStacker spawner stack: " + t);
+            // Put the old type back so the stack keeps its original value
+            try {
+                cs.setSpawnedType(org.bukkit.entity.EntityType.valueOf(placed.mobKey));
+                cs.update(true, false);
+            } catch (IllegalArgumentException ignored) {}
+            return false;
+        }
+    }
+
     /**
      * Remove up to 'count' ItemStacks matching mobKey from player's inventory.
      * This is conservative and removes whole ItemStack amounts from inventory; RoseStacker may handle stack metadata in the ItemStack itself.
@@ -0,0 +1,358 @@
+package com.farahsoftware.rsx;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Optional embedded SQLite backend (storage.type: sqlite) for rates and exchange history.
+ *
+ * All JDBC work happens on a single worker thread that owns the connection. Completed exchanges
+ * are queued lock-free and inserted in batches (one transaction per flush interval). Reads used by
+ * commands return CompletableFutures completed on the worker; the hot path never queries the database,
+ * it reads the RateTable cache instead.
+ *
+ * Uses the SQLite JDBC driver bundled with Spigot/Paper.
+ */
+public class SqlStorage {
+    private final RoseStackerXchange plugin;
+    private final RSXMetrics metrics;
+    private final File dbFile;
+    private final long flushIntervalMs;
+    private final Queue<ExchangeRecord> pendingExchanges = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RSX-Storage");
+        t.setDaemon(true);
+        return t;
+    });
+    private Connection conn;
+
+    public SqlStorage(RoseStackerXchange plugin, RSXMetrics metrics, File dbFile, int flushIntervalMs) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.dbFile = dbFile;
+        this.flushIntervalMs = Math.max(50, flushIntervalMs);
+    }
+
+    /**
+     * Open the database and create the schema. Blocks the caller (plugin enable) until done.
+     */
+    public void start() throws Exception {
+        call(() -> {
+            Class.forName("org.sqlite.JDBC");
+            conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+            try (Statement st = conn.createStatement()) {
+                st.execute("PRAGMA journal_mode=WAL");
+                st.execute("PRAGMA synchronous=NORMAL");
+                st.execute("CREATE TABLE IF NOT EXISTS rsx_rates (mob TEXT PRIMARY KEY, rate INTEGER NOT NULL, allow INTEGER NOT NULL DEFAULT 1)");
+                st.execute("CREATE TABLE IF NOT EXISTS rsx_exchanges (id INTEGER PRIMARY KEY AUTOINCREMENT, ts INTEGER NOT NULL, tx_id INTEGER NOT NULL, "
+                        + "player TEXT NOT NULL, target TEXT NOT NULL, points INTEGER NOT NULL)");
+                st.execute("CREATE INDEX IF NOT EXISTS rsx_exchanges_player ON rsx_exchanges (player, ts)");
+                st.execute("CREATE TABLE IF NOT EXISTS rsx_exchange_inputs (ts INTEGER NOT NULL, tx_id INTEGER NOT NULL, player TEXT NOT NULL, "
+                        + "mob TEXT NOT NULL, count INTEGER NOT NULL)");
+                st.execute("CREATE INDEX IF NOT EXISTS rsx_inputs_exchange ON rsx_exchange_inputs (player, ts, tx_id)");
+            }
+            return null;
+        });
+        worker.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        metrics.gauge("storage.pending", pendingExchanges::size);
+    }
+
+    /** Queue a completed exchange for the next batch insert. */
+    public void appendExchange(ExchangeRecord record) {
+        pendingExchanges.offer(record);
+    }
+
+    /**
+     * Flush what is queued, then close the connection.
+     */
+    public void shutdown() {
+        try {
+            worker.submit(() -> {
+                flushSafely();
+                try {
+                    if (conn != null) conn.close();
+                } catch (SQLException ignored) {}
+            }).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            plugin.getLogger().warning("[RSX] Storage shutdown did not complete: " + e);
+        }
+        worker.shutdownNow();
+    }
+
+    /* Rates */
+
+    /**
+     * Allowed rates, blocking. Used as the RateTable loader (enable/reload only, never per click).
+     */
+    public Map<String, Integer> loadRates() {
+        try {
+            return call(() -> {
+                Map<String, Integer> out = new LinkedHashMap<>();
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT mob, rate FROM rsx_rates WHERE allow = 1")) {
+                    while (rs.next()) out.put(rs.getString(1), rs.getInt(2));
+                }
+                return out;
+            });
+        } catch (Exception e) {
+            plugin.getLogger().warning("[RSX] Could not load rates from storage: " + e);
+            return new LinkedHashMap<>();
+        }
+    }
+
+    public int countRates() throws Exception {
+        return call(() -> {
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM rsx_rates")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    /**
+     * One-shot import of the config.yml 'mobs' section. Existing rows are overwritten. Completes with the
+     * number of rates written.
+     */
+    public CompletableFuture<Integer> importRates(Map<String, Integer> rates) {
+        return supply(() -> {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement("INSERT OR REPLACE INTO rsx_rates (mob, rate, allow) VALUES (?, ?, 1)")) {
+                for (Map.Entry<String, Integer> e : rates.entrySet()) {
+                    ps.setString(1, e.getKey().toUpperCase(Locale.ROOT));
+                    ps.setInt(2, e.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            return rates.size();
+        });
+    }
+
+    /** Persist a single rate edit in the background. */
+    public void saveRate(String mobKey, int rate) {
+        worker.execute(() -> {
+            try (PreparedStatement ps = conn.prepareStatement("INSERT OR REPLACE INTO rsx_rates (mob, rate, allow) VALUES (?, ?, 1)")) {
+                ps.setString(1, mobKey.toUpperCase(Locale.ROOT));
+                ps.setInt(2, rate);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                metrics.increment("storage.errors");
+                plugin.getLogger().warning("[RSX] Could not save rate for " + mobKey + ": " + e);
+            }
+        });
+    }
+
+    /* History */
+
+    /**
+     * A page of a player's exchanges, newest first. Queued exchanges are inserted first, so the offset counts
+     * the same records the in-memory history already shows.
+     */
+    public CompletableFuture<List<ExchangeRecord>> loadHistory(UUID player, int offset, int limit) {
+        return supply(() -> {
+            flushSafely();
+            List<ExchangeRecord> out = new ArrayList<>();
+            String id = player.toString();
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT ts, tx_id, target, points FROM rsx_exchanges WHERE player = ? ORDER BY ts DESC, id DESC LIMIT ? OFFSET ?");
+                 PreparedStatement inputs = conn.prepareStatement(
+                    "SELECT mob, count FROM rsx_exchange_inputs WHERE player = ? AND ts = ? AND tx_id = ?")) {
+                ps.setString(1, id);
+                ps.setInt(2, limit);
+                ps.setInt(3, offset);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        long ts = rs.getLong(1);
+                        long tx = rs.getLong(2);
+                        Map<String, Integer> consumed = new LinkedHashMap<>();
+                        inputs.setString(1, id);
+                        inputs.setLong(2, ts);
+                        inputs.setLong(3, tx);
+                        try (ResultSet in = inputs.executeQuery()) {
+                            while (in.next()) consumed.merge(in.getString(1), in.getInt(2), Integer::sum);
+                        }
+                        out.add(new ExchangeRecord(tx, ts, player, rs.getString(3), rs.getInt(4), consumed));
+                    }
+                }
+            }
+            return out;
+        });
+    }
+
+    /**
+     * Stream exchanges before a cutoff (without their inputs) plus per-mob input sums, for seeding
+     * in-memory aggregates. Completes with the number of exchanges streamed.
+     */
+    public CompletableFuture<Long> scanAggregates(long before, Consumer<ExchangeRecord> exchanges, BiConsumer<String, Long> inputs) {
+        return supply(() -> {
+            long n = 0;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT ts, tx_id, player, target, points FROM rsx_exchanges WHERE ts < ?")) {
+                ps.setLong(1, before);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        exchanges.accept(new ExchangeRecord(rs.getLong(2), rs.getLong(1), UUID.fromString(rs.getString(3)),
+                                rs.getString(4), rs.getInt(5), Map.of()));
+                        n++;
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT mob, SUM(count) FROM rsx_exchange_inputs WHERE ts < ? GROUP BY mob")) {
+                ps.setLong(1, before);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) inputs.accept(rs.getString(1), rs.getLong(2));
+                }
+            }
+            return n;
+        });
+    }
+
+    /**
+     * Stream each player's newest perPlayer exchanges before a cutoff, with their inputs, oldest first per
+     * player, for seeding the in-memory recent history. Completes with the number of exchanges streamed.
+     */
+    public CompletableFuture<Long> scanRecent(long before, int perPlayer, Consumer<ExchangeRecord> exchanges) {
+        return supply(() -> {
+            long n = 0;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT r.id, r.ts, r.tx_id, r.player, r.target, r.points, i.mob, i.count FROM ("
+                    + "SELECT id, ts, tx_id, player, target, points, "
+                    + "ROW_NUMBER() OVER (PARTITION BY player ORDER BY ts DESC, id DESC) AS rn FROM rsx_exchanges WHERE ts < ?) r "
+                    + "LEFT JOIN rsx_exchange_inputs i ON i.player = r.player AND i.ts = r.ts AND i.tx_id = r.tx_id "
+                    + "WHERE r.rn <= ? ORDER BY r.player, r.ts, r.id")) {
+                ps.setLong(1, before);
+                ps.setInt(2, perPlayer);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // One row per input; rows of one exchange are adjacent
+                    long id = -1;
+                    Object[] row = null;
+                    Map<String, Integer> consumed = null;
+                    while (rs.next()) {
+                        if (rs.getLong(1) != id) {
+                            if (row != null) {
+                                exchanges.accept(toRecord(row, consumed));
+                                n++;
+                            }
+                            id = rs.getLong(1);
+                            row = new Object[] {rs.getLong(2), rs.getLong(3), rs.getString(4), rs.getString(5), rs.getInt(6)};
+                            consumed = new LinkedHashMap<>();
+                        }
+                        String mob = rs.getString(7);
+                        if (mob != null) consumed.merge(mob, rs.getInt(8), Integer::sum);
+                    }
+                    if (row != null) {
+                        exchanges.accept(toRecord(row, consumed));
+                        n++;
+                    }
+                }
+            }
+            return n;
+        });
+    }
+
+    private static ExchangeRecord toRecord(Object[] row, Map<String, Integer> consumed) {
+        return new ExchangeRecord((Long) row[1], (Long) row[0], UUID.fromString((String) row[2]), (String) row[3], (Integer) row[4], consumed);
+    }
+
+    /* Worker plumbing */
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Throwable t) {
+            metrics.increment("storage.errors");
+            plugin.getLogger().warning("[RSX] Storage batch insert failed: " + t);
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (pendingExchanges.isEmpty()) return;
+        List<ExchangeRecord> batch = new ArrayList<>();
+        ExchangeRecord r;
+        while ((r = pendingExchanges.poll()) != null) batch.add(r);
+        conn.setAutoCommit(false);
+        try (PreparedStatement ex = conn.prepareStatement("INSERT INTO rsx_exchanges (ts, tx_id, player, target, points) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement in = conn.prepareStatement("INSERT INTO rsx_exchange_inputs (ts, tx_id, player, mob, count) VALUES (?, ?, ?, ?, ?)")) {
+            for (ExchangeRecord rec : batch) {
+                String player = rec.player.toString();
+                ex.setLong(1, rec.timestamp);
+                ex.setLong(2, rec.txId);
+                ex.setString(3, player);
+                ex.setString(4, rec.target);
+                ex.setInt(5, rec.points);
+                ex.addBatch();
+                for (Map.Entry<String, Integer> e : rec.consumed.entrySet()) {
+                    in.setLong(1, rec.timestamp);
+                    in.setLong(2, rec.txId);
+                    in.setString(3, player);
+                    in.setString(4, e.getKey());
+                    in.setInt(5, e.getValue());
+                    in.addBatch();
+                }
+            }
+            ex.executeBatch();
+            in.executeBatch();
+            conn.commit();
+            metrics.add("storage.exchanges-written", batch.size());
+            metrics.increment("storage.batches");
+        } catch (SQLException e) {
+            conn.rollback();
+            // put them back for the next attempt
+            pendingExchanges.addAll(batch);
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private interface SqlCall<T> {
+        T run() throws Exception;
+    }
+
+    private <T> T call(SqlCall<T> c) throws Exception {
+        try {
+            return worker.submit(c::run).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> supply(SqlCall<T> c) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        worker.execute(() -> {
+            try {
+                f.complete(c.run());
+            } catch (Throwable t) {
+                metrics.increment("storage.errors");
+                f.completeExceptionally(t);
+            }
+        });
+        return f;
+    }
+}
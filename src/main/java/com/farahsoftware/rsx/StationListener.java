@@ -0,0 +1,21 @@
+package com.farahsoftware.rsx;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+
+public class StationListener implements Listener {
+    private final StationManager stations;
+
+    public StationListener(StationManager stations) {
+        this.stations = stations;
+    }
+
+    // Contents drop like any container; the station just stops being drained
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBreak(BlockBreakEvent e) {
+        if (e.getBlock().getType() != stations.getBlockType()) return;
+        if (stations.getStationMob(e.getBlock()) != null) stations.unregister(e.getBlock().getLocation());
+    }
+}
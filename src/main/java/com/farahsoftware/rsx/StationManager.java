@@ -0,0 +1,353 @@
+package com.farahsoftware.rsx;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Exchange stations: admin-placed container blocks that convert spawners in bulk without a GUI.
+ *
+ * - The station block (stations.block) carries its target mob, owner and output link in its PDC.
+ * - Hoppers fill the station; every stations.interval-ticks all stations are drained in one pass that
+ *   looks at no more than stations.max-items-per-tick input stacks (round-robin, so every station gets a turn).
+ * - Inputs are scored and consumed like a GUI exchange (same matching, stack counts and planner)
+ *   at the base tier, for as many targets as the inputs cover. Outputs go to the linked container;
+ *   a full output pauses the station until it has room again.
+ * - Remainders of partly used inputs go back into the station; whatever does not fit is sent to the
+ *   owner's mailbox, never dropped.
+ * - Every conversion is reported to the completion listeners under the owner's UUID.
+ *
+ * Station locations are listed in stations.yml so the drain never has to scan chunks.
+ */
+public class StationManager {
+    /** Output containers must be this close to their station (keeps both in one Folia region). */
+    static final int MAX_LINK_DISTANCE = 16;
+
+    private final RoseStackerXchange plugin;
+    private final RSXMetrics metrics;
+    private final File file;
+    private final Material blockType;
+    private final NamespacedKey stationKey;
+    private final NamespacedKey ownerKey;
+    private final NamespacedKey outputKey;
+    private final List<Location> stations = new CopyOnWriteArrayList<>();
+    private final Map<UUID, Location> pendingLink = new ConcurrentHashMap<>();
+    private volatile int maxItemsPerPass;
+    private int cursor;
+    private RSXScheduler.Task task;
+
+    public StationManager(RoseStackerXchange plugin, RSXMetrics metrics, File file, Material blockType, int maxItemsPerPass) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.file = file;
+        this.blockType = blockType;
+        this.stationKey = new NamespacedKey(plugin, "rsx_station");
+        this.ownerKey = new NamespacedKey(plugin, "rsx_station_owner");
+        this.outputKey = new NamespacedKey(plugin, "rsx_station_output");
+        setMaxItemsPerPass(maxItemsPerPass);
+        metrics.gauge("stations.active", stations::size);
+    }
+
+    public void setMaxItemsPerPass(int maxItemsPerPass) {
+        this.maxItemsPerPass = Math.max(1, maxItemsPerPass);
+    }
+
+    public void start(int intervalTicks) {
+        load();
+        task = plugin.getScheduler().runGlobalTimer(this::drain, intervalTicks, intervalTicks);
+    }
+
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    public Material getBlockType() { return blockType; }
+
+    /* Registration (admin commands, block break) */
+
+    /** Target mob of a station block, or null if the block is not a station. */
+    public String getStationMob(Block block) {
+        if (block.getType() != blockType) return null;
+        BlockState state = block.getState();
+        if (!(state instanceof Container)) return null;
+        return ((Container) state).getPersistentDataContainer().get(stationKey, PersistentDataType.STRING);
+    }
+
+    /** Tag a block as a station for mob. The block must be a container of the station type. */
+    public boolean create(Block block, String mob, UUID owner) {
+        if (block.getType() != blockType) return false;
+        BlockState state = block.getState();
+        if (!(state instanceof Container)) return false;
+        Container c = (Container) state;
+        c.getPersistentDataContainer().set(stationKey, PersistentDataType.STRING, mob);
+        c.getPersistentDataContainer().set(ownerKey, PersistentDataType.STRING, owner.toString());
+        c.update();
+        Location loc = block.getLocation();
+        if (!stations.contains(loc)) {
+            stations.add(loc);
+            save();
+        }
+        pendingLink.put(owner, loc);
+        return true;
+    }
+
+    /** Station the player created last and has not linked yet. */
+    public Location getPendingLink(UUID player) {
+        return pendingLink.get(player);
+    }
+
+    /** Link a station to an output container. Both must be loaded; distance is checked by the caller. */
+    public boolean link(Location station, Block output) {
+        if (!(output.getState() instanceof Container)) return false;
+        BlockState state = station.getBlock().getState();
+        if (!(state instanceof Container)) return false;
+        Container c = (Container) state;
+        if (!c.getPersistentDataContainer().has(stationKey, PersistentDataType.STRING)) return false;
+        c.getPersistentDataContainer().set(outputKey, PersistentDataType.STRING,
+                output.getX() + "," + output.getY() + "," + output.getZ());
+        c.update();
+        pendingLink.values().remove(station);
+        return true;
+    }
+
+    /** Remove the station tags from a block and forget it. */
+    public boolean remove(Block block) {
+        BlockState state = block.getState();
+        if (state instanceof Container) {
+            PersistentDataContainer pdc = ((Container) state).getPersistentDataContainer();
+            pdc.remove(stationKey);
+            pdc.remove(ownerKey);
+            pdc.remove(outputKey);
+            state.update();
+        }
+        return unregister(block.getLocation());
+    }
+
+    /** Forget a station location (block broken or tags gone). */
+    public boolean unregister(Location loc) {
+        boolean removed = stations.remove(loc);
+        pendingLink.values().remove(loc);
+        if (removed) save();
+        return removed;
+    }
+
+    public List<Location> getStations() {
+        return new ArrayList<>(stations);
+    }
+
+    /* Drain */
+
+    private void drain() {
+        Location[] snapshot = stations.toArray(new Location[0]);
+        if (snapshot.length == 0) return;
+        int cap = maxItemsPerPass;
+        if (plugin.getScheduler().isFolia()) {
+            // Stations tick on their own regions, so the cap applies to each of them separately
+            for (Location loc : snapshot) plugin.getScheduler().runAtLocation(loc, () -> process(loc, cap));
+            return;
+        }
+        int start = cursor % snapshot.length;
+        int budget = cap;
+        for (int i = 0; i < snapshot.length && budget > 0; i++) {
+            int idx = (start + i) % snapshot.length;
+            budget -= process(snapshot[idx], budget);
+            cursor = idx + 1;
+        }
+    }
+
+    /**
+     * Convert what one station holds. Returns the number of input stacks looked at.
+     */
+    private int process(Location loc, int cap) {
+        World w = loc.getWorld();
+        if (w == null || !w.isChunkLoaded(loc.getBlockX() >> 4, loc.getBlockZ() >> 4)) return 0;
+        BlockState state = loc.getBlock().getState();
+        if (!(state instanceof Container)) {
+            unregister(loc);
+            return 0;
+        }
+        Container station = (Container) state;
+        PersistentDataContainer pdc = station.getPersistentDataContainer();
+        String target = pdc.get(stationKey, PersistentDataType.STRING);
+        if (target == null) {
+            unregister(loc);
+            return 0;
+        }
+        Inventory out = outputInventory(w, pdc.get(outputKey, PersistentDataType.STRING));
+        if (out == null) return 0;
+
+        Map<String, Integer> mobMap = plugin.getRateTable().rates();
+        Integer targetRate = mobMap.get(target);
+        if (targetRate == null) return 0;
+        int required = plugin.getRateTiers().tables().cost(RateTiers.BASE, target, targetRate);
+        if (required <= 0) return 0;
+
+        // Score: one pass, remembering what each input slot is worth
+        ExchangeManager exchange = plugin.getExchangeManager();
+        Inventory in = station.getInventory();
+        int size = in.getSize();
+        int[] inputSlots = new int[size];
+        String[] slotMob = new String[size];
+        int[] slotRate = new int[size];
+        int[] slotCount = new int[size];
+        int inputs = 0;
+        int scanned = 0;
+        long totalPoints = 0;
+        for (int i = 0; i < size && scanned < cap; i++) {
+            ItemStack it = in.getItem(i);
+            if (it == null) continue;
+            scanned++;
+            String match = exchange.matchItemToMob(it, mobMap.keySet());
+            if (match == null) continue;
+            int rate = mobMap.getOrDefault(match, 1);
+            int count = exchange.getEffectiveStackCount(it);
+            inputSlots[inputs] = i;
+            slotMob[inputs] = match;
+            slotRate[inputs] = rate;
+            slotCount[inputs] = count;
+            totalPoints += (long) rate * count;
+            inputs++;
+        }
+        metrics.add("stations.scanned", scanned);
+        if (totalPoints < required) return scanned;
+
+        // Leftovers that do not fit go to the owner's mailbox, so a station needs a valid owner
+        UUID owner;
+        try {
+            owner = UUID.fromString(pdc.get(ownerKey, PersistentDataType.STRING));
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            return scanned;
+        }
+
+        // Outputs must fit before anything is consumed
+        int targets = (int) Math.min(Integer.MAX_VALUE / required, totalPoints / required);
+        int free = 0;
+        for (ItemStack it : out.getStorageContents()) if (it == null) free++;
+        if (free == 0) {
+            metrics.increment("stations.output-full");
+            return scanned;
+        }
+        List<ItemStack> outputs = plugin.getSpawnerManager().createSpawnerItems(target, targets);
+        if (outputs.isEmpty()) return scanned;
+        // A RoseStacker stacked item carries every target in one item; plain stacks carry their amount
+        boolean stacked = outputs.size() == 1 && outputs.get(0).getAmount() != targets;
+        if (outputs.size() > free) {
+            // Plain spawner stacks: convert only what fits this pass
+            outputs = new ArrayList<>(outputs.subList(0, free));
+            targets = 0;
+            for (ItemStack it : outputs) targets += it.getAmount();
+        }
+
+        // Consume what the planner picks, exactly like a GUI exchange
+        int[] take = ExchangePlanner.plan(slotRate, slotCount, inputs, targets * required);
+        if (take == null) return scanned;
+        Map<String, Integer> consumed = new LinkedHashMap<>();
+        Map<String, Integer> rests = new LinkedHashMap<>();
+        for (int n = 0; n < inputs; n++) {
+            if (take[n] <= 0) continue;
+            int remaining = slotCount[n] - take[n];
+            consumed.merge(slotMob[n], take[n], Integer::sum);
+            in.setItem(inputSlots[n], null);
+            if (remaining > 0) rests.merge(slotMob[n], remaining, Integer::sum);
+        }
+        DeliveryMailbox mailbox = plugin.getMailbox();
+        int mailed = 0;
+        for (Map.Entry<String, Integer> e : rests.entrySet()) {
+            List<ItemStack> rest = plugin.getSpawnerManager().createSpawnerItems(e.getKey(), e.getValue());
+            mailed += mailLeftover(owner, e.getKey(), in.addItem(rest.toArray(new ItemStack[0])), exchange, mailbox);
+        }
+        Map<Integer, ItemStack> overflow = out.addItem(outputs.toArray(new ItemStack[0]));
+        // Should not happen after the free-slot check; anything that did not fit goes to the owner
+        if (!overflow.isEmpty()) {
+            if (stacked) {
+                mailbox.deliver(owner, target, targets);
+                mailed += targets;
+            } else {
+                mailed += mailLeftover(owner, target, overflow, exchange, mailbox);
+            }
+        }
+        if (mailed > 0) metrics.add("stations.mailed", mailed);
+
+        metrics.add("stations.converted", targets);
+        exchange.publishCompletion(new ExchangeRecord(ExchangeManager.nextTxId(), System.currentTimeMillis(),
+                owner, target, targets * required, consumed));
+        return scanned;
+    }
+
+    /** Send spawner items addItem could not place to the owner's mailbox; returns the spawners mailed. */
+    private int mailLeftover(UUID owner, String mob, Map<Integer, ItemStack> leftover, ExchangeManager exchange, DeliveryMailbox mailbox) {
+        int mailed = 0;
+        for (ItemStack it : leftover.values()) {
+            int count = exchange.getEffectiveStackCount(it);
+            mailbox.deliver(owner, mob, count);
+            mailed += count;
+        }
+        return mailed;
+    }
+
+    private Inventory outputInventory(World w, String link) {
+        if (link == null) return null;
+        String[] p = link.split(",");
+        if (p.length != 3) return null;
+        try {
+            int x = Integer.parseInt(p[0]), y = Integer.parseInt(p[1]), z = Integer.parseInt(p[2]);
+            if (!w.isChunkLoaded(x >> 4, z >> 4)) return null;
+            BlockState state = w.getBlockAt(x, y, z).getState();
+            return state instanceof Container ? ((Container) state).getInventory() : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /* Persistence of the station list */
+
+    private void load() {
+        if (!file.exists()) return;
+        YamlConfiguration yml = YamlConfiguration.loadConfiguration(file);
+        for (String s : yml.getStringList("stations")) {
+            String[] p = s.split(";");
+            if (p.length != 4) continue;
+            World w = plugin.getServer().getWorld(p[0]);
+            if (w == null) continue;
+            try {
+                stations.add(new Location(w, Integer.parseInt(p[1]), Integer.parseInt(p[2]), Integer.parseInt(p[3])));
+            } catch (NumberFormatException ignored) {}
+        }
+    }
+
+    private synchronized void save() {
+        List<String> out = new ArrayList<>();
+        for (Location l : stations) {
+            if (l.getWorld() == null) continue;
+            out.add(l.getWorld().getName() + ";" + l.getBlockX() + ";" + l.getBlockY() + ";" + l.getBlockZ());
+        }
+        YamlConfiguration yml = new YamlConfiguration();
+        yml.set("stations", out);
+        try {
+            yml.save(file);
+        } catch (java.io.IOException ex) {
+            plugin.getLogger().warning("[RSX] Could not save stations.yml: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.farahsoftware.rsx;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Main-thread executor for non-urgent RSX work (GUI refreshes, confirm/marker repaints, rebuilds).
+ *
+ * Work is drained once per tick until the configured budget (settings performance.tick-budget-micros)
+ * is used up; whatever is left spills over to the next tick. Submissions with a key coalesce, so ten
+ * clicks in one tick still cost a single refresh. At least one task runs per tick to guarantee progress.
+ *
+ * Must only be used from the main thread. On Folia per-player work bypasses it (see
+ * ExchangeManager#requestRefresh) because it would run on the global region, not the player's.
+ */
+public class TickBudgetExecutor {
+    private final RoseStackerXchange plugin;
+    private final RSXMetrics metrics;
+    private final LinkedHashMap<Object, Entry> queue = new LinkedHashMap<>();
+    private long budgetNanos;
+    private RSXScheduler.Task task;
+
+    // Published for the gauges, which /rsx stats and metrics snapshots may read off the main thread
+    private volatile int queueSize;
+    private volatile long lastLatencyMicros;
+    private volatile long maxLatencyMicros;
+
+    public TickBudgetExecutor(RoseStackerXchange plugin, RSXMetrics metrics, int budgetMicros) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        setBudgetMicros(budgetMicros);
+        metrics.gauge("budget.queue-size", () -> queueSize);
+        metrics.gauge("budget.last-latency-micros", () -> lastLatencyMicros);
+        metrics.gauge("budget.max-latency-micros", () -> maxLatencyMicros);
+    }
+
+    public void setBudgetMicros(int budgetMicros) {
+        this.budgetNanos = Math.max(50, budgetMicros) * 1000L;
+    }
+
+    public void start() {
+        if (task != null) return;
+        task = plugin.getScheduler().runGlobalTimer(this::drain, 1L, 1L);
+    }
+
+    /**
+     * Stop ticking and run whatever is still queued so no repaint is lost on disable.
+     */
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        while (!queue.isEmpty()) runNext();
+    }
+
+    /**
+     * Queue a task. If a task with the same key is already pending it is replaced in place
+     * (keeps its original queue position and enqueue time).
+     */
+    public void submit(Object key, Runnable work) {
+        metrics.increment("budget.submitted");
+        Entry existing = queue.get(key);
+        if (existing != null) {
+            existing.work = work;
+            metrics.increment("budget.coalesced");
+            return;
+        }
+        queue.put(key, new Entry(work, System.nanoTime()));
+        queueSize = queue.size();
+    }
+
+    public void submit(Runnable work) {
+        submit(new Object(), work);
+    }
+
+    /** Drop a pending task, e.g. when the session it belongs to is gone. */
+    public void cancel(Object key) {
+        if (queue.remove(key) != null) queueSize = queue.size();
+    }
+
+    private void drain() {
+        if (queue.isEmpty()) return;
+        long start = System.nanoTime();
+        int ran = 0;
+        while (!queue.isEmpty()) {
+            if (ran > 0 && System.nanoTime() - start >= budgetNanos) break;
+            runNext();
+            ran++;
+        }
+        metrics.add("budget.executed", ran);
+        metrics.add("budget.used-micros", (System.nanoTime() - start) / 1000L);
+        if (!queue.isEmpty()) {
+            metrics.increment("budget.spillover-ticks");
+            metrics.add("budget.spillover-tasks", queue.size());
+        }
+    }
+
+    private void runNext() {
+        Iterator<Map.Entry<Object, Entry>> it = queue.entrySet().iterator();
+        Entry e = it.next().getValue();
+        it.remove();
+        queueSize = queue.size();
+        long latency = (System.nanoTime() - e.enqueuedAt) / 1000L;
+        lastLatencyMicros = latency;
+        if (latency > maxLatencyMicros) maxLatencyMicros = latency;
+        try {
+            e.work.run();
+        } catch (Throwable t) {
+            plugin.getLogger().warning("[RSX] Deferred task failed: " + t);
+        }
+    }
+
+    private static final class Entry {
+        Runnable work;
+        final long enqueuedAt;
+        Entry(Runnable work, long enqueuedAt) {
+            this.work = work;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}